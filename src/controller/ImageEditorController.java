@@ -2,12 +2,17 @@ package controller;
 
 import controller.commands.Blur;
 import controller.commands.Checkerboard;
+import controller.commands.Compose;
+import controller.commands.Convolve;
 import controller.commands.CreateLayer;
+import controller.commands.Defer;
 import controller.commands.DuplicateLayer;
+import controller.commands.Gaussian;
 import controller.commands.Greyscale;
 import controller.commands.Load;
 import controller.commands.LoadImages;
 import controller.commands.Mosaic;
+import controller.commands.MosaicSet;
 import controller.commands.RemoveLayer;
 import controller.commands.Save;
 import controller.commands.SaveAll;
@@ -18,7 +23,9 @@ import controller.commands.SwapLayer;
 import controller.commands.ToggleVisible;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.function.Function;
@@ -33,6 +40,10 @@ import view.ImageView;
  */
 public class ImageEditorController implements ImageController {
 
+  private static final String INTEGER = "[-+]?\\d+";
+  private static final String ENGINE = "nearest|sweep";
+  private static final String NUMBER = "[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?";
+
   private final Reader rd;
   private final ImageView view;
   private final Map<String, Function<Scanner, ImageCommand>> commandMap;
@@ -54,14 +65,71 @@ public class ImageEditorController implements ImageController {
     this.rd = rd;
     this.view = view;
     this.commandMap = new HashMap<>();
-    commandMap.putIfAbsent("blur", s -> new Blur(model, view));
+    commandMap.putIfAbsent("blur", s -> {
+      String radius = nextInLine(s, INTEGER);
+      return radius == null ? new Blur(model, view) : new Blur(model, view, radius);
+    });
+    commandMap.putIfAbsent("gaussian", s -> new Gaussian(model, view, s.next()));
+    commandMap.putIfAbsent("convolve", s -> {
+      String size = nextInLine(s, INTEGER);
+      if (size == null) {
+        return new Convolve(model, view, s.next());
+      }
+      int n;
+      try {
+        n = Integer.parseInt(size);
+      } catch (NumberFormatException e) {
+        n = 0;
+      }
+      List<String> weights = new ArrayList<>();
+      if (n > 0 && n % 2 == 1 && n <= Convolve.MAX_SIZE) {
+        for (int i = 0; i < n * n; i++) {
+          String weight = nextInLine(s, "\\S+");
+          if (weight == null) {
+            break;
+          }
+          weights.add(weight);
+        }
+      } else {
+        // the command reports the invalid size, drop its weights so they are not taken as commands
+        String weight = nextInLine(s, NUMBER);
+        while (weight != null) {
+          weight = nextInLine(s, NUMBER);
+        }
+      }
+      return new Convolve(model, view, size, weights);
+    });
     commandMap.putIfAbsent("sharpen", s -> new Sharpen(model, view));
     commandMap.putIfAbsent("greyscale", s -> new Greyscale(model, view));
     commandMap.putIfAbsent("sepia", s -> new Sepia(model, view));
-    commandMap.putIfAbsent("mosaic", s -> new Mosaic(model, view,s.next()));
+    commandMap.putIfAbsent("compose", s -> new Compose(model, view, s.next()));
+    commandMap.putIfAbsent("defer", s -> new Defer(model, view, s.next()));
+    commandMap.putIfAbsent("mosaic", s -> {
+      String seeds = s.next();
+      String rngSeed = nextInLine(s, INTEGER);
+      String engine = nextInLine(s, ENGINE);
+      return new Mosaic(model, view, seeds, rngSeed, engine);
+    });
+    commandMap.putIfAbsent("mosaicSet", s -> {
+      String prefix = s.next();
+      String fileType = s.next();
+      String seeds = s.next();
+      String rngSeed = nextInLine(s, INTEGER);
+      String engine = nextInLine(s, ENGINE);
+      return new MosaicSet(model, view, prefix, fileType, seeds, rngSeed, engine);
+    });
     commandMap.putIfAbsent("load", s -> new Load(model, view, s.next()));
-    commandMap.putIfAbsent("save", s -> new Save(model, view, s.next()));
-    commandMap.putIfAbsent("saveAll", s -> new SaveAll(model, view, s.next(), s.next()));
+    commandMap.putIfAbsent("save", s -> {
+      String file = s.next();
+      boolean binary = nextInLine(s, "binary") != null;
+      return new Save(model, view, file, binary);
+    });
+    commandMap.putIfAbsent("saveAll", s -> {
+      String directoryName = s.next();
+      String fileType = s.next();
+      boolean binary = nextInLine(s, "binary") != null;
+      return new SaveAll(model, view, directoryName, fileType, binary);
+    });
     commandMap.putIfAbsent("createLayer", s -> new CreateLayer(model, view));
     commandMap.putIfAbsent("setCurrent", s -> new SetCurrent(model, view, s.next()));
     commandMap.putIfAbsent("removeLayer", s -> new RemoveLayer(model, view, s.next()));
@@ -121,6 +189,13 @@ public class ImageEditorController implements ImageController {
     throw new IllegalStateException("Expected input");
   }
 
+  // returns the next token if it is on the current line and matches the given pattern, otherwise
+  // null, never reading past the end of the line so that optional arguments do not wait for input
+  private static String nextInLine(Scanner s, String pattern) {
+    String token = s.findInLine("\\G[^\\S\\r\\n]*(" + pattern + ")(?!\\S)");
+    return token == null ? null : s.match().group(1);
+  }
+
   // transmits messages to view
   protected void write(String message) throws IllegalStateException {
     try {
@@ -9,6 +9,8 @@ import view.ImageView;
  */
 public class Blur extends AbstractImageCommand {
 
+  private final String radius;
+
   /**
    * Creates the function object to blur an image in the model.
    * @param model the model to blur an image
@@ -16,15 +18,40 @@ public class Blur extends AbstractImageCommand {
    */
   public Blur(ImageModel model, ImageView view) {
     super(model, view);
+    this.radius = null;
+  }
+
+  /**
+   * Creates the function object to blur an image in the model over the given radius.
+   * @param model the model to blur an image
+   * @param view where to transmit messages to
+   * @param radius how many pixels away from each pixel to blur over
+   */
+  public Blur(ImageModel model, ImageView view, String radius) {
+    super(model, view);
+    this.radius = radius;
   }
 
   @Override
   public void run() {
-    if (model.isImage(model.getCurrentIndex())) {
+    int r = 0;
+    if (radius != null) {
+      try {
+        r = Integer.parseInt(radius);
+      } catch (NumberFormatException e) {
+        write("Could not parse integer");
+        return;
+      }
+    }
+
+    if (!model.isImage(model.getCurrentIndex()) || (radius != null && r <= 0)) {
+      write("Could not blur");
+    } else if (radius == null) {
       model.blurImage();
       write("blur applied");
     } else {
-      write("Could not blur");
+      model.blurImage(r);
+      write("blur applied");
     }
   }
 }
@@ -0,0 +1,40 @@
+package controller.commands;
+
+import controller.AbstractImageCommand;
+import model.ColorComposition;
+import model.ImageModel;
+import view.ImageView;
+
+/**
+ * The command to choose how consecutive color transformations are combined in an
+ * {@code ImageModel}.
+ */
+public class Compose extends AbstractImageCommand {
+
+  private final String mode;
+
+  /**
+   * Creates the function object to set how consecutive greyscale and sepia transformations are
+   * combined for the images in the model.
+   * @param model the model to change the color composition of
+   * @param view where to transmit messages to
+   * @param mode "exact" to keep each transformation separate, "fast" to multiply them into one
+   */
+  public Compose(ImageModel model, ImageView view, String mode) {
+    super(model, view);
+    this.mode = mode;
+  }
+
+  @Override
+  public void run() {
+    if ("exact".equals(mode)) {
+      model.setColorComposition(ColorComposition.EXACT);
+      write("exact color composition");
+    } else if ("fast".equals(mode)) {
+      model.setColorComposition(ColorComposition.FAST);
+      write("fast color composition");
+    } else {
+      write("Expected exact or fast");
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package controller.commands;
+
+import controller.AbstractImageCommand;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.ImageCreatorEnhanced;
+import model.ImageModel;
+import view.ImageView;
+
+/**
+ * The command to convolve an image with a user supplied kernel for an {@code ImageModel}.
+ */
+public class Convolve extends AbstractImageCommand {
+
+  /**
+   * Largest number of rows and columns of a kernel.
+   */
+  public static final int MAX_SIZE = 99;
+
+  private final String file;
+  private final String size;
+  private final List<String> weights;
+
+  /**
+   * Creates the function object to convolve an image in the model with the kernel in the given
+   * text file. The file holds the weights of a square kernel of odd size, row by row, separated
+   * by whitespace.
+   *
+   * @param model the model to convolve an image of
+   * @param view  where to transmit messages to
+   * @param file  the text file holding the kernel
+   */
+  public Convolve(ImageModel model, ImageView view, String file) {
+    super(model, view);
+    this.file = file;
+    this.size = null;
+    this.weights = null;
+  }
+
+  /**
+   * Creates the function object to convolve an image in the model with the given kernel.
+   *
+   * @param model   the model to convolve an image of
+   * @param view    where to transmit messages to
+   * @param size    the number of rows and columns of the kernel
+   * @param weights the weights of the kernel, row by row
+   */
+  public Convolve(ImageModel model, ImageView view, String size, List<String> weights) {
+    super(model, view);
+    this.file = null;
+    this.size = size;
+    this.weights = weights;
+  }
+
+  @Override
+  public void run() {
+    List<String> tokens;
+    int n;
+    if (file != null) {
+      try {
+        String text = ImageCreatorEnhanced.readTextFile(file).trim();
+        tokens = text.isEmpty() ? new ArrayList<>() : Arrays.asList(text.split("\\s+"));
+      } catch (IllegalArgumentException e) {
+        write("Could not read kernel: " + e.getMessage());
+        return;
+      }
+      n = (int) Math.round(Math.sqrt(tokens.size()));
+    } else {
+      tokens = weights;
+      try {
+        n = Integer.parseInt(size);
+      } catch (NumberFormatException e) {
+        write("Not a number: " + e.getMessage());
+        return;
+      }
+    }
+    if (n > MAX_SIZE) {
+      write("Kernel must be at most " + MAX_SIZE + " by " + MAX_SIZE);
+      return;
+    }
+    if (tokens == null || n <= 0 || n % 2 == 0 || tokens.size() != n * n) {
+      write("Kernel must be square with an odd size");
+      return;
+    }
+
+    double[][] kernel = new double[n][n];
+    try {
+      for (int i = 0; i < n * n; i++) {
+        kernel[i / n][i % n] = Double.parseDouble(tokens.get(i));
+      }
+    } catch (NumberFormatException e) {
+      write("Not a number: " + e.getMessage());
+      return;
+    }
+
+    if (!model.isImage(model.getCurrentIndex())) {
+      write("Could not convolve");
+      return;
+    }
+    try {
+      model.convolve(kernel);
+      write("convolution applied");
+    } catch (IllegalArgumentException e) {
+      write("Could not convolve: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package controller.commands;
+
+import controller.AbstractImageCommand;
+import model.ImageModel;
+import view.ImageView;
+
+/**
+ * The command to turn deferred editing on or off for an {@code ImageModel}.
+ */
+public class Defer extends AbstractImageCommand {
+
+  private final String mode;
+
+  /**
+   * Creates the function object to turn deferred editing of the images in the model on or off.
+   * @param model the model to change the editing mode of
+   * @param view where to transmit messages to
+   * @param mode "on" to defer editing operations, "off" to apply them right away
+   */
+  public Defer(ImageModel model, ImageView view, String mode) {
+    super(model, view);
+    this.mode = mode;
+  }
+
+  @Override
+  public void run() {
+    if ("on".equals(mode)) {
+      model.setDeferred(true);
+      write("deferred editing on");
+    } else if ("off".equals(mode)) {
+      model.setDeferred(false);
+      write("deferred editing off");
+    } else {
+      write("Expected on or off");
+    }
+  }
+}
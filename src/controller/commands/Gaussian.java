@@ -0,0 +1,47 @@
+package controller.commands;
+
+import controller.AbstractImageCommand;
+import model.ImageModel;
+import view.ImageView;
+
+/**
+ * The command to apply a gaussian blur to an image for an {@code ImageModel}.
+ */
+public class Gaussian extends AbstractImageCommand {
+
+  private final String sigma;
+
+  /**
+   * Creates the function object to apply a gaussian blur to an image in the model.
+   *
+   * @param model the model to blur an image
+   * @param view  where to transmit messages to
+   * @param sigma standard deviation of the gaussian in pixels
+   */
+  public Gaussian(ImageModel model, ImageView view, String sigma) {
+    super(model, view);
+    this.sigma = sigma;
+  }
+
+  @Override
+  public void run() {
+    double s;
+    try {
+      s = Double.parseDouble(sigma);
+    } catch (NumberFormatException | NullPointerException e) {
+      write("Could not parse number");
+      return;
+    }
+
+    if (!model.isImage(model.getCurrentIndex())) {
+      write("Could not apply gaussian blur");
+      return;
+    }
+    try {
+      model.gaussianBlur(s);
+      write("gaussian blur applied");
+    } catch (IllegalArgumentException e) {
+      write("Could not apply gaussian blur: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package controller.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the reading or writing of the files of several layers at once, on a pool of at most as many
+ * threads as there are processors. Tasks must not touch the model, their results are handed back
+ * in the order of the tasks for the command to apply to the model and report on in layer order.
+ */
+final class LayerTasks {
+
+  private LayerTasks() {
+  }
+
+  /**
+   * Runs every task and returns their results in the order of the tasks.
+   *
+   * @param tasks the tasks to run
+   * @param <T>   type of the results
+   * @return the result of every task
+   * @throws IllegalStateException if the thread was interrupted while waiting for the tasks
+   */
+  static <T> List<T> run(List<Callable<T>> tasks) throws IllegalStateException {
+    int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+    List<T> results = new ArrayList<>(tasks.size());
+    if (threads <= 1) {
+      for (Callable<T> task : tasks) {
+        results.add(call(task));
+      }
+      return results;
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<T>> futures = new ArrayList<>(tasks.size());
+      for (Callable<T> task : tasks) {
+        futures.add(pool.submit(() -> call(task)));
+      }
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted");
+    } catch (ExecutionException e) {
+      // tasks only throw unchecked exceptions, rethrow them as if the task ran on this thread
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw (RuntimeException) e.getCause();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  // runs the given task, which must only throw unchecked exceptions
+  private static <T> T call(Callable<T> task) {
+    try {
+      return task.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+}
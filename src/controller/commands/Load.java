@@ -33,9 +33,11 @@ public class Load extends AbstractImageCommand {
       write("Cannot be null");
       return;
     }
-    IImageConverter image = readImage();
-
-    if (image == null) {
+    IImageConverter image;
+    try {
+      image = readImage(file);
+    } catch (IllegalArgumentException e) {
+      write(e.getMessage());
       return;
     }
     try {
@@ -45,35 +47,37 @@ public class Load extends AbstractImageCommand {
     }
   }
 
-  // returns an image converted to the format type of the file name
-  private IImageConverter readImage() {
+  /**
+   * Reads the image of the given file, in the format of its file type. Does not touch the model,
+   * so several files can be read at once.
+   *
+   * @param file the image file name
+   * @return the image in the file
+   * @throws IllegalArgumentException with the message to output if the file could not be read
+   */
+  static IImageConverter readImage(String file) throws IllegalArgumentException {
     String fileType = file.substring(file.lastIndexOf(".") + 1);
-    IImageConverter image = null;
     switch (fileType) {
       case "ppm":
         try {
-          image = ImageCreatorEnhanced.readPPMEnhanced(file);
+          return ImageCreatorEnhanced.readPPMEnhanced(file);
         } catch (IllegalArgumentException e) {
-          write("Could not load ppm");
+          throw new IllegalArgumentException("Could not load ppm");
         }
-        break;
       case "jpeg":
         try {
-          image = ImageCreatorEnhanced.readJPEG(file);
+          return ImageCreatorEnhanced.readJPEG(file);
         } catch (IOException e) {
-          write("Could not load jpeg");
+          throw new IllegalArgumentException("Could not load jpeg");
         }
-        break;
       case "png":
         try {
-          image = ImageCreatorEnhanced.readPNG(file);
+          return ImageCreatorEnhanced.readPNG(file);
         } catch (IOException e) {
-          write("Could not load png");
+          throw new IllegalArgumentException("Could not load png");
         }
-        break;
       default:
-        write("Invalid file type");
+        throw new IllegalArgumentException("Invalid file type");
     }
-    return image;
   }
 }
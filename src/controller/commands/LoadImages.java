@@ -1,13 +1,18 @@
 package controller.commands;
 
 import controller.AbstractImageCommand;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import model.IImageConverter;
 import model.ImageCreatorEnhanced;
 import model.ImageModel;
 import view.ImageView;
 
 /**
  * The command to load all the images in a text file of the locations to an {@code ImageModel}.
+ * The files are read at the same time, then loaded into their layers in order.
  */
 public class LoadImages extends AbstractImageCommand {
   protected String directory;
@@ -35,10 +40,31 @@ public class LoadImages extends AbstractImageCommand {
       return;
     }
     Scanner scan = new Scanner(images);
+    List<Callable<Object>> reads = new ArrayList<>();
     while (scan.hasNext()) {
+      String file = scan.next();
+      // the image read, or the exception with the message to output
+      reads.add(() -> {
+        try {
+          return Load.readImage(file);
+        } catch (IllegalArgumentException e) {
+          return e;
+        }
+      });
+    }
+
+    for (Object read : LayerTasks.run(reads)) {
       model.addLayer();
       model.setCurrent(model.getNumLayers() - 1);
-      new Load(model, view, scan.next()).run();
+      if (read instanceof IllegalArgumentException) {
+        write(((IllegalArgumentException) read).getMessage());
+        continue;
+      }
+      try {
+        model.loadImage((IImageConverter) read);
+      } catch (IllegalStateException e) {
+        write("Could not load image: " + e.getMessage());
+      }
     }
   }
 }
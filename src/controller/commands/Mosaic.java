@@ -1,7 +1,9 @@
 package controller.commands;
 
 import controller.AbstractImageCommand;
+import java.util.Random;
 import model.ImageModel;
+import model.MosaicEngine;
 import view.ImageView;
 
 /**
@@ -10,6 +12,8 @@ import view.ImageView;
 public class Mosaic extends AbstractImageCommand {
 
   private final String seed;
+  private final String rngSeed;
+  private final String engine;
 
   /**
    * Creates the function object to apply mosaic on an image in the model.
@@ -19,22 +23,77 @@ public class Mosaic extends AbstractImageCommand {
    * @param seed  number of seeds used in the mosaic filter
    */
   public Mosaic(ImageModel model, ImageView view, String seed) {
+    this(model, view, seed, null);
+  }
+
+  /**
+   * Creates the function object to apply mosaic on an image in the model, placing the seeds the
+   * same way every time for the same random number generator seed.
+   *
+   * @param model   the model to apply mosaic to an image
+   * @param view    where to transmit messages to
+   * @param seed    number of seeds used in the mosaic filter
+   * @param rngSeed seed of the random number generator placing the seeds, null for a random one
+   */
+  public Mosaic(ImageModel model, ImageView view, String seed, String rngSeed) {
+    this(model, view, seed, rngSeed, null);
+  }
+
+  /**
+   * Creates the function object to apply mosaic on an image in the model, finding the closest
+   * seed of every pixel with the given engine.
+   *
+   * @param model   the model to apply mosaic to an image
+   * @param view    where to transmit messages to
+   * @param seed    number of seeds used in the mosaic filter
+   * @param rngSeed seed of the random number generator placing the seeds, null for a random one
+   * @param engine  nearest or sweep, null for the default
+   */
+  public Mosaic(ImageModel model, ImageView view, String seed, String rngSeed, String engine) {
     super(model, view);
     this.seed = seed;
+    this.rngSeed = rngSeed;
+    this.engine = engine;
   }
 
   @Override
   public void run() {
     int noSeed = 0;
+    long noRngSeed = 0;
     try {
       noSeed = Integer.parseInt(seed);
+      if (rngSeed != null) {
+        noRngSeed = Long.parseLong(rngSeed);
+      }
     } catch (NumberFormatException e) {
       write("Could not parse integer");
       return;
     }
 
+    MosaicEngine mosaicEngine = null;
+    if (engine != null) {
+      switch (engine) {
+        case "nearest":
+          mosaicEngine = MosaicEngine.NEAREST_SEED;
+          break;
+        case "sweep":
+          mosaicEngine = MosaicEngine.SWEEP;
+          break;
+        default:
+          write("Expected nearest or sweep");
+          return;
+      }
+    }
+
     if (model.isImage(model.getCurrentIndex()) && noSeed > 0) {
-      model.mosaic(noSeed);
+      if (mosaicEngine != null) {
+        model.mosaic(noSeed, rngSeed == null ? new Random().nextLong() : noRngSeed,
+            mosaicEngine);
+      } else if (rngSeed == null) {
+        model.mosaic(noSeed);
+      } else {
+        model.mosaic(noSeed, noRngSeed);
+      }
       write("mosaic applied");
     } else {
       write("Could not apply mosaic filter");
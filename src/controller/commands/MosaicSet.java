@@ -0,0 +1,119 @@
+package controller.commands;
+
+import controller.AbstractImageCommand;
+import java.io.IOException;
+import java.util.Random;
+import model.IImageConverter;
+import model.ImageCreatorEnhanced;
+import model.ImageModel;
+import model.MosaicEngine;
+import view.ImageView;
+
+/**
+ * The command to save several mosaics of an image in an {@code ImageModel}, one for each of a list
+ * of seed counts, without changing the image. The image is read and the seeds are placed once for
+ * all of the mosaics, and every mosaic is saved as soon as it is done.
+ */
+public class MosaicSet extends AbstractImageCommand {
+
+  private final String prefix;
+  private final String fileType;
+  private final String seeds;
+  private final String rngSeed;
+  private final String engine;
+
+  /**
+   * Creates the function object to save a mosaic of the current image for every number of seeds
+   * in a comma separated list. The mosaic with n seeds is saved as the prefix followed by
+   * {@code n + "seed." + fileType}.
+   *
+   * @param model    the model to take the image from
+   * @param view     where to output messages
+   * @param prefix   path of the files to save, before the number of seeds
+   * @param fileType the format to save the mosaics as
+   * @param seeds    comma separated numbers of seeds, in the order to save the mosaics
+   * @param rngSeed  seed of the random number generator placing the seeds, null for a random one
+   * @param engine   nearest or sweep, null for the default
+   */
+  public MosaicSet(ImageModel model, ImageView view, String prefix, String fileType, String seeds,
+      String rngSeed, String engine) {
+    super(model, view);
+    this.prefix = prefix;
+    this.fileType = fileType;
+    this.seeds = seeds;
+    this.rngSeed = rngSeed;
+    this.engine = engine;
+  }
+
+  @Override
+  public void run() {
+    if (prefix == null || fileType == null || seeds == null) {
+      write("Cannot be null");
+      return;
+    }
+    if (!fileType.equals("ppm") && !fileType.equals("jpeg") && !fileType.equals("png")) {
+      write("Invalid file type");
+      return;
+    }
+
+    String[] counts = seeds.split(",");
+    int[] noSeeds = new int[counts.length];
+    long noRngSeed;
+    try {
+      for (int i = 0; i < counts.length; i++) {
+        noSeeds[i] = Integer.parseInt(counts[i]);
+        if (noSeeds[i] <= 0) {
+          write("Could not apply mosaic filter");
+          return;
+        }
+      }
+      noRngSeed = rngSeed == null ? new Random().nextLong() : Long.parseLong(rngSeed);
+    } catch (NumberFormatException e) {
+      write("Could not parse integer");
+      return;
+    }
+
+    MosaicEngine mosaicEngine = MosaicEngine.NEAREST_SEED;
+    if (engine != null) {
+      switch (engine) {
+        case "nearest":
+          break;
+        case "sweep":
+          mosaicEngine = MosaicEngine.SWEEP;
+          break;
+        default:
+          write("Expected nearest or sweep");
+          return;
+      }
+    }
+
+    if (!model.isImage(model.getCurrentIndex())) {
+      write("Could not apply mosaic filter");
+      return;
+    }
+    int[] next = {0};
+    model.mosaics(noSeeds, noRngSeed, mosaicEngine,
+        image -> saveImage(image, prefix + noSeeds[next[0]++] + "seed." + fileType));
+  }
+
+  // saves the given mosaic to the given file in the file type of this command
+  private void saveImage(IImageConverter image, String file) {
+    switch (fileType) {
+      case "ppm":
+        image = image.toPPM();
+        break;
+      case "jpeg":
+        image = image.toJPEG();
+        break;
+      default:
+        image = image.toPNG();
+        break;
+    }
+    try {
+      ImageCreatorEnhanced.writeImage(image, file, "");
+      write("Saved " + file);
+    } catch (IOException e) {
+      write("Could not save image: " + e.getMessage());
+    }
+  }
+}
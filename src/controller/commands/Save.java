@@ -13,6 +13,7 @@ import view.ImageView;
 public class Save extends AbstractImageCommand {
 
   protected String file;
+  private final boolean binary;
 
   /**
    * Creates the function object to save topmost visible image in a layer to the given file name
@@ -23,12 +24,30 @@ public class Save extends AbstractImageCommand {
    * @param file the name of the file to save the image as
    */
   public Save(ImageModel model, ImageView view, String file) {
+    this(model, view, file, false);
+  }
+
+  /**
+   * Creates the function object to save topmost visible image in a layer to the given file name
+   * from the model if there is one, as a binary (P6) PPM if binary is true.
+   *
+   * @param model  the model where to save an image from
+   * @param view   where to output messages
+   * @param file   the name of the file to save the image as
+   * @param binary whether to save a PPM file in binary, only for PPM files
+   */
+  public Save(ImageModel model, ImageView view, String file, boolean binary) {
     super(model, view);
     this.file = file;
+    this.binary = binary;
   }
 
   @Override
   public void run() {
+    if (binary && file != null && !file.substring(file.lastIndexOf(".") + 1).equals("ppm")) {
+      write("Binary is only for ppm");
+      return;
+    }
     int numLayers = model.getNumLayers();
     if (numLayers == 0) {
       write("No layers");
@@ -44,7 +63,13 @@ public class Save extends AbstractImageCommand {
 
         int curr = model.getCurrentIndex();
         model.setCurrent(i);
-        IImageConverter image = getImage();
+        IImageConverter image;
+        try {
+          image = getImage();
+        } catch (IllegalArgumentException e) {
+          write("Could not save image: " + e.getMessage());
+          return;
+        }
         if (image == null) {
           write("Invalid file name");
           return;
@@ -69,9 +94,10 @@ public class Save extends AbstractImageCommand {
       return null;
     }
 
-    switch (file.substring(file.lastIndexOf(".") + 1)) {
+    String fileType = file.substring(file.lastIndexOf(".") + 1);
+    switch (fileType) {
       case "ppm":
-        return model.toPPM();
+        return binary ? model.toBinaryPPM() : model.toPPM();
       case "jpeg":
         return model.toJPEG();
       case "png":
@@ -3,6 +3,9 @@ package controller.commands;
 import controller.AbstractImageCommand;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import model.IImageConverter;
 import model.ImageCreatorEnhanced;
 import model.ImageModel;
@@ -11,12 +14,13 @@ import view.ImageView;
 /**
  * The command to save all the visible images in a directory with a text file of the locations in a
  * specific type for an {@code ImageModel}. Will create directory regardless if there are any images
- * to save.
+ * to save. The images are encoded and written at the same time.
  */
 public class SaveAll extends AbstractImageCommand {
 
   protected String directoryName;
   private final String fileType;
+  private final boolean binary;
   private final Appendable files;
 
   /**
@@ -30,9 +34,26 @@ public class SaveAll extends AbstractImageCommand {
    * @param fileType      the format to save the images as
    */
   public SaveAll(ImageModel model, ImageView view, String directoryName, String fileType) {
+    this(model, view, directoryName, fileType, false);
+  }
+
+  /**
+   * Creates the function object to save all visible images at the given directory of the given
+   * type, as binary (P6) PPM files if binary is true, and a text file of the locations of each
+   * image saved. Saves the images as its layer position.
+   *
+   * @param model         the model to save images from
+   * @param view          where to output messages
+   * @param directoryName the directory to save the images and text file to
+   * @param fileType      the format to save the images as
+   * @param binary        whether to save PPM files in binary, only for the ppm format
+   */
+  public SaveAll(ImageModel model, ImageView view, String directoryName, String fileType,
+      boolean binary) {
     super(model, view);
     this.directoryName = directoryName;
     this.fileType = fileType;
+    this.binary = binary;
     this.files = new StringBuilder();
   }
 
@@ -42,6 +63,10 @@ public class SaveAll extends AbstractImageCommand {
       write("Cannot be null");
       return;
     }
+    if (binary && !fileType.equals("ppm")) {
+      write("Binary is only for ppm");
+      return;
+    }
     File theDir = new File(directoryName);
     if (!theDir.exists()) {
       if (!theDir.mkdirs()) {
@@ -49,15 +74,38 @@ public class SaveAll extends AbstractImageCommand {
         return;
       }
     }
+    // takes the images of the layers in order, then encodes and writes them at the same time
+    List<Integer> layers = new ArrayList<>();
+    List<Callable<String>> saves = new ArrayList<>();
     for (int i = 0; i < model.getNumLayers(); i += 1) {
       if (model.getVisibility(i) && model.isImage(i)) {
         model.setCurrent(i);
-        IImageConverter image = getImage();
+        IImageConverter image;
+        try {
+          image = getImage();
+        } catch (IllegalArgumentException e) {
+          write("Could not save image: " + e.getMessage());
+          continue;
+        }
         if (image == null) {
           write("Invalid file type");
           return;
         }
-        saveImage(i, image);
+        int layer = i;
+        layers.add(layer);
+        saves.add(() -> saveImage(layer, image));
+      }
+    }
+    List<String> errors = LayerTasks.run(saves);
+    for (int k = 0; k < layers.size(); k++) {
+      if (errors.get(k) != null) {
+        write(errors.get(k));
+        continue;
+      }
+      try {
+        files.append(directoryName + "/layer" + layers.get(k) + "." + fileType + "\n");
+      } catch (IOException e) {
+        write("Could not save image: " + e.getMessage());
       }
     }
     try {
@@ -67,13 +115,14 @@ public class SaveAll extends AbstractImageCommand {
     }
   }
 
-  // saves the given image to the directory, naming it by the given position
-  private void saveImage(int i, IImageConverter image) {
+  // saves the given image to the directory, naming it by the given position, and returns the
+  // message to output if it could not be saved, null otherwise
+  private String saveImage(int i, IImageConverter image) {
     try {
       ImageCreatorEnhanced.writeImage(image, "layer" + i + "." + fileType, directoryName);
-      files.append(directoryName + "/layer" + i + "." + fileType + "\n");
+      return null;
     } catch (IOException | IllegalArgumentException e) {
-      write("Could not save image: " + e.getMessage());
+      return "Could not save image: " + e.getMessage();
     }
   }
 
@@ -81,7 +130,7 @@ public class SaveAll extends AbstractImageCommand {
   private IImageConverter getImage() {
     switch (fileType) {
       case "ppm":
-        return model.toPPM();
+        return binary ? model.toBinaryPPM() : model.toPPM();
       case "jpeg":
         return model.toJPEG();
       case "png":
@@ -1,26 +1,69 @@
 package model;
 
-import java.awt.Point;
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Abstract representation of images. Assumes all images can be converted into array of pixels and
  * has associated height/width consequently and max color that can be provided or assumed.
- * Difference between image formats, is how they are read from a file and exported into a file. Uses
- * {@code Pixel}.
+ * Difference between image formats, is how they are read from a file and exported into a file.
+ * Pixels are stored packed in a single int array of interleaved red, green and blue components,
+ * {@code IPixel} is only used as a view of a single pixel. Blur, sharpen, greyscale and sepia are
+ * recorded in a {@code Pipeline}; in deferred mode they are only applied once the pixels are
+ * needed, so consecutive operations share passes over the image. With fast color composition,
+ * color transformations also wait for the pixels to be needed so that consecutive ones can be
+ * multiplied into one. Every image owns a second buffer that spatial filters write into before
+ * the two buffers are swapped, so repeated editing does not allocate new pixel arrays. Every change
+ * to the pixels moves the image to a new modification version, so that what is made from the
+ * pixels can be kept until they change.
  */
 public abstract class AbstractImage implements ImageEditorEnhanced {
 
-  protected final IPixel[][] pixelArray;
+  protected int[] pixels;
   protected final int maxColor;
   protected final int height;
   protected final int width;
+  protected boolean deferred;
+  protected ColorComposition colorComposition;
+  private final Pipeline pipeline;
+  // buffer the next spatial filter writes into, null until first needed
+  private int[] backBuffer;
+  // whether pixels is also used by another image and must not be recycled as the back buffer
+  private boolean sharedPixels;
+  // number of changes to the pixels, shared by the images that share pixel arrays
+  private AtomicLong version;
+
+  static final Kernel BLUR = new Kernel(new double[][]{
+      {0.0625, 0.125, 0.0625},
+      {0.125, 0.25, 0.125},
+      {0.0625, 0.125, 0.0625}});
+
+  static final Kernel SHARPEN = new Kernel(new double[][]{
+      {-0.125, -0.125, -0.125, -0.125, -0.125},
+      {-0.125, 0.25, 0.25, 0.25, -0.125},
+      {-0.125, 0.25, 1.0, 0.25, -0.125},
+      {-0.125, 0.25, 0.25, 0.25, -0.125},
+      {-0.125, -0.125, -0.125, -0.125, -0.125}});
+
+  static final ColorMatrix GREYSCALE = new ColorMatrix(new double[][]{
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722}});
+
+  static final ColorMatrix SEPIA = new ColorMatrix(new double[][]{
+      {0.3930, .7690, 0.189},
+      {.349, .686, .168},
+      {.272, .534, .131}});
+
+  // the color sums and pixel counts of the clusters of a band of rows of a mosaic
+  private static final ScratchBuffer<long[]> BAND_SUMS =
+      new ScratchBuffer<>(long[]::new, array -> array.length);
+  private static final ScratchBuffer<int[]> BAND_COUNTS =
+      new ScratchBuffer<>(int[]::new, array -> array.length);
 
   /**
    * Constructs abstract Image.
@@ -33,6 +76,49 @@ public abstract class AbstractImage implements ImageEditorEnhanced {
    */
   public AbstractImage(int width, int height, int maxColor, IPixel[][] pixelArray)
       throws IllegalArgumentException {
+    this(width, height, maxColor, pack(width, height, pixelArray));
+  }
+
+  /**
+   * Constructs abstract Image from packed pixel data. The array is used directly, not copied.
+   *
+   * @param width    width of image
+   * @param height   height of image
+   * @param maxColor maxValue of color allowed for format
+   * @param pixels   red, green and blue components of every pixel, row by row
+   * @throws IllegalArgumentException if pixels is invalid
+   */
+  protected AbstractImage(int width, int height, int maxColor, int[] pixels)
+      throws IllegalArgumentException {
+    if (pixels == null) {
+      throw new IllegalArgumentException("Null Parameter");
+    }
+    if (width <= 0 || height <= 0 || pixels.length != 3 * width * height) {
+      throw new IllegalArgumentException("Bad pixelArray");
+    }
+    this.pixels = pixels;
+    this.maxColor = maxColor;
+    this.width = width;
+    this.height = height;
+    this.deferred = false;
+    this.colorComposition = ColorComposition.EXACT;
+    this.pipeline = new Pipeline();
+    this.backBuffer = null;
+    this.sharedPixels = false;
+    this.version = new AtomicLong();
+  }
+
+  /**
+   * Packs the given array of pixels into an array of interleaved color components.
+   *
+   * @param width      width of image
+   * @param height     height of image
+   * @param pixelArray array of pixels representing the image
+   * @return packed color components of the pixels
+   * @throws IllegalArgumentException if pixelArray is invalid
+   */
+  private static int[] pack(int width, int height, IPixel[][] pixelArray)
+      throws IllegalArgumentException {
     if (pixelArray == null) {
       throw new IllegalArgumentException("Null Parameter");
     }
@@ -44,104 +130,221 @@ public abstract class AbstractImage implements ImageEditorEnhanced {
         throw new IllegalArgumentException("Null Parameter");
       }
     }
-    this.pixelArray = pixelArray;
-    this.maxColor = maxColor;
-    this.width = width;
-    this.height = height;
+    if (pixelArray.length != height || pixelArray[0].length != width) {
+      throw new IllegalArgumentException("Bad pixelArray");
+    }
+
+    int[] packed = new int[3 * width * height];
+    int i = 0;
+    for (IPixel[] row : pixelArray) {
+      if (row.length != width) {
+        throw new IllegalArgumentException("Bad pixelArray");
+      }
+      for (IPixel pixel : row) {
+        packed[i++] = pixel.getRed();
+        packed[i++] = pixel.getGreen();
+        packed[i++] = pixel.getBlue();
+      }
+    }
+    return packed;
+  }
+
+  /**
+   * Returns a view of the pixel at the given location.
+   *
+   * @param h height of pixel
+   * @param w width of pixel
+   * @return the pixel at h,w
+   */
+  protected IPixel getPixel(int h, int w) {
+    evaluate();
+    int i = (h * width + w) * 3;
+    return new Pixel(pixels[i], pixels[i + 1], pixels[i + 2]);
+  }
+
+  /**
+   * Sets the pixel at the given location to the colors of the given pixel.
+   *
+   * @param h     height of pixel
+   * @param w     width of pixel
+   * @param pixel colors to store at h,w
+   */
+  protected void setPixel(int h, int w, IPixel pixel) {
+    evaluate();
+    int i = (h * width + w) * 3;
+    pixels[i] = pixel.getRed();
+    pixels[i + 1] = pixel.getGreen();
+    pixels[i + 2] = pixel.getBlue();
+    modified();
   }
 
   @Override
   public void blurImage() {
-    List<List<Double>> blurArray = new ArrayList<>(Arrays.asList(
-        new ArrayList<>(Arrays.asList(0.0625, 0.125, 0.0625)),
-        new ArrayList<>(Arrays.asList(0.125, 0.25, 0.125)),
-        new ArrayList<>(Arrays.asList(0.0625, 0.125, 0.0625))));
+    pipeline.add(BLUR);
+    modified();
+    applyUnlessDeferred();
+  }
 
-    this.generateImage(filterImage(blurArray));
+  @Override
+  public void blurImage(int radius) throws IllegalArgumentException {
+    pipeline.add(new BoxBlur(radius));
+    modified();
+    applyUnlessDeferred();
+  }
+
+  @Override
+  public void gaussianBlur(double sigma) throws IllegalArgumentException {
+    pipeline.add(SeparableKernel.gaussian(sigma));
+    modified();
+    applyUnlessDeferred();
+  }
+
+  @Override
+  public void convolve(double[][] kernel) throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("Null Parameter");
+    }
+    pipeline.add(Convolution.of(kernel));
+    modified();
+    applyUnlessDeferred();
   }
 
   @Override
   public void sharpenImage() {
-    List<List<Double>> sharpArray = new ArrayList<>(Arrays.asList(
-        new ArrayList<>(Arrays.asList(-0.125, -0.125, -0.125, -0.125, -0.125)),
-        new ArrayList<>(Arrays.asList(-0.125, 0.25, 0.25, 0.25, -0.125)),
-        new ArrayList<>(Arrays.asList(-0.125, 0.25, 1.0, 0.25, -0.125)),
-        new ArrayList<>(Arrays.asList(-0.125, 0.25, 0.25, 0.25, -0.125)),
-        new ArrayList<>(Arrays.asList(-0.125, -0.125, -0.125, -0.125, -0.125))));
+    pipeline.add(SHARPEN);
+    modified();
+    applyUnlessDeferred();
+  }
+
+  /**
+   * Applies the recorded operations to the pixels of this image, unless this image is deferred.
+   */
+  private void applyUnlessDeferred() {
+    if (!deferred) {
+      evaluate();
+    }
+  }
 
-    this.generateImage(filterImage(sharpArray));
+  /**
+   * Applies every recorded operation that has not been applied yet to the pixels of this image.
+   * Must be called before reading or writing the pixels directly.
+   */
+  protected void evaluate() {
+    if (pipeline.isEmpty()) {
+      return;
+    }
+    int[] shared = sharedPixels ? this.pixels : null;
+    int[][] buffers = {this.pixels, this.backBuffer};
+    pipeline.run(buffers, width, height, maxColor, shared);
+    if (shared != null && buffers[0] != shared) {
+      // the pixels moved off the shared array, leave it to the other image
+      if (buffers[1] == shared) {
+        buffers[1] = null;
+      }
+      sharedPixels = false;
+    }
+    this.pixels = buffers[0];
+    this.backBuffer = buffers[1];
   }
 
   /**
-   * Apply given kernel to this pixelArray.
+   * Returns the pixels of this image, to be used by another image as its pixels too. Neither
+   * image will reuse the array as a back buffer afterwards.
+   *
+   * @return the packed pixels of this image
+   */
+  int[] sharePixels() {
+    evaluate();
+    sharedPixels = true;
+    return this.pixels;
+  }
+
+  /**
+   * Marks the pixels of this image as shared with the given image, which they were taken from.
+   * From then on a change to either image counts as a change to both of them.
+   *
+   * @param owner the image the pixels of this image were taken from
+   */
+  void markShared(AbstractImage owner) {
+    sharedPixels = true;
+    version = owner.version;
+  }
+
+  /**
+   * Returns the modification version of the pixels of this image. It changes whenever they are
+   * changed, by this image or by an image sharing its pixels, so anything made from the pixels at
+   * one version can be reused for as long as the version stays the same.
+   *
+   * @return the modification version of this image
+   */
+  protected long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Records that the pixels of this image changed, or are going to change once evaluated.
+   */
+  protected void modified() {
+    version.incrementAndGet();
+  }
+
+  /**
+   * Apply given kernel to the pixels of this image, rounding every tap like the kernels of
+   * {@link #blurImage()} and {@link #sharpenImage()}. Kernels of at least
+   * {@code Convolution.FFT_MIN_SIZE} rows are too slow to apply tap by tap and go through
+   * {@code Convolution.of} instead, which rounds only the sum of every pixel.
    *
    * @param filterArray kernel
-   * @return modified array of pixels
+   * @return modified packed pixels
    * @throws IllegalArgumentException if filterArray is malformed
    */
-  protected IPixel[][] filterImage(List<List<Double>> filterArray)
+  protected int[] filterImage(List<List<Double>> filterArray)
       throws IllegalArgumentException {
     //check that input kernel doesn't have odd dimensions and is square
     //realistically this exception won't occur because its not public facing
-    if (filterArray.size() % 2 == 0 || filterArray.size() != filterArray.get(0).size()) {
-      throw new IllegalArgumentException("Invalid Kernel");
+    double[][] rows = Kernel.unbox(filterArray);
+    if (rows.length >= Convolution.FFT_MIN_SIZE) {
+      return filterImage(Convolution.of(rows));
     }
-
-    IPixel[][] modifiedArray = new IPixel[height][width];
-
-    for (int h = 0; h < height; h++) {
-      for (int w = 0; w < width; w++) {
-        modifiedArray[h][w] = addFilter(h, w, filterArray);
-      }
-    }
-
-    return modifiedArray;
+    return filterImage(new Kernel(rows));
   }
 
   /**
-   * Applies the filter to pixel at specified height and width and returns the modification.
+   * Apply given filter to the pixels of this image.
    *
-   * @param h           height of pixel we are modifying
-   * @param w           width of pixel we are modifying
-   * @param filterArray kernel used to filter image
-   * @return the pixel at h,w with applied filter
+   * @param filter filter
+   * @return modified packed pixels
    */
-  protected IPixel addFilter(int h, int w, List<List<Double>> filterArray) {
-    IPixel result = new Pixel(0, 0, 0);
-
-    int filterHeight = (filterArray.size() - 1) / 2;
-    for (int i = 0; i < filterArray.size(); i++) {
-      for (int j = 0; j < filterArray.size(); j++) {
-        int pixelPosH = h - filterHeight + i;
-        int pixelPosW = w - filterHeight + j;
-        if (pixelPosH >= 0 && pixelPosW >= 0 && pixelPosH < this.height && pixelPosW < this.width) {
-          result = result.add(this.pixelArray[pixelPosH][pixelPosW]
-              .multiply(filterArray.get(i).get(j)));
-        }
-      }
-    }
-
-    //final color is made, clamp bounds and return it
-    result = result.clampBounds(this.maxColor);
-    return result;
+  int[] filterImage(Filter filter) {
+    evaluate();
+    int[] modifiedArray = new int[pixels.length];
+    filter.apply(this.pixels, modifiedArray, width, height, maxColor, (rowStart, rowEnd) -> {
+    });
+    return modifiedArray;
   }
 
   @Override
   public void greyscaleImage() {
-    List<List<Double>> greyScaleArray = new ArrayList<>(Arrays.asList(
-        new ArrayList<>(Arrays.asList(0.2126, 0.7152, 0.0722)),
-        new ArrayList<>(Arrays.asList(0.2126, 0.7152, 0.0722)),
-        new ArrayList<>(Arrays.asList(0.2126, 0.7152, 0.0722))));
-    this.generateImage(applyColorTransformation(greyScaleArray));
+    transformColors(GREYSCALE);
   }
 
   @Override
   public void sepiaImage() {
-    List<List<Double>> sepiaArray = new ArrayList<>(Arrays.asList(
-        new ArrayList<>(Arrays.asList(0.3930, .7690, 0.189)),
-        new ArrayList<>(Arrays.asList(.349, .686, .168)),
-        new ArrayList<>(Arrays.asList(.272, .534, .131))));
-    this.generateImage(applyColorTransformation(sepiaArray));
+    transformColors(SEPIA);
+  }
+
+  /**
+   * Records a color transformation. With fast color composition it is kept to be multiplied with
+   * the next one, otherwise it is applied unless this image is deferred.
+   *
+   * @param colorMatrix the matrix of the color transformation
+   */
+  private void transformColors(ColorMatrix colorMatrix) {
+    pipeline.add(colorMatrix, colorComposition);
+    modified();
+    if (colorComposition == ColorComposition.EXACT) {
+      applyUnlessDeferred();
+    }
   }
 
   /**
@@ -149,128 +352,251 @@ public abstract class AbstractImage implements ImageEditorEnhanced {
    * this images old color values to apply a color transformation.
    *
    * @param colorTransformationArray the matrix to apply the color transformation
-   * @return the new linear combinations of pixels
+   * @return the new linear combinations of pixels, packed
+   * @throws IllegalArgumentException if the given matrix is invalid
    */
-  protected IPixel[][] applyColorTransformation(List<List<Double>> colorTransformationArray) {
-    IPixel[][] modifiedPixels = new IPixel[height][width];
-    for (int h = 0; h < height; h++) {
-      for (int w = 0; w < width; w++) {
-        modifiedPixels[h][w] =
-            pixelArray[h][w].linearCombine(colorTransformationArray).clampBounds(maxColor);
-      }
-    }
+  protected int[] applyColorTransformation(List<List<Double>> colorTransformationArray)
+      throws IllegalArgumentException {
+    return applyColorTransformation(new ColorMatrix(colorTransformationArray));
+  }
+
+  /**
+   * Applies the given matrix onto this image to apply a color transformation.
+   *
+   * @param colorMatrix the matrix to apply the color transformation
+   * @return the new linear combinations of pixels, packed
+   */
+  int[] applyColorTransformation(ColorMatrix colorMatrix) {
+    evaluate();
+    int[] modifiedPixels = new int[pixels.length];
+    colorMatrix.apply(this.pixels, modifiedPixels, width, height, maxColor);
     return modifiedPixels;
   }
 
   /**
-   * Change this pixelArray to the new one.
+   * Change the pixels of this image to the new ones.
    *
-   * @param newArray color array to replace this pixelArray
+   * @param newArray packed color array to replace the pixels of this image
    */
-  protected void generateImage(IPixel[][] newArray) {
-    for (int i = 0; i < newArray.length; i++) {
-      for (int j = 0; j < newArray[0].length; j++) {
-        this.pixelArray[i][j] = newArray[i][j];
-      }
-    }
+  protected void generateImage(int[] newArray) {
+    System.arraycopy(newArray, 0, this.pixels, 0, this.pixels.length);
+    modified();
   }
 
   @Override
-  public void mosaic(int seeds) {
-    Random rand = new Random();
-    Map<Point2D, List<Point2D>> mapPoints = new HashMap<>();
-    Map<Point2D, IPixel> mapColors;
-
-    List<Point2D> seed = new ArrayList<>();
-
-    for (int i = 0; i < seeds; i++) {
-      Point point = new Point(rand.nextInt(this.width), rand.nextInt(this.height));
-      seed.add(point);
-      mapPoints.putIfAbsent(point, new ArrayList<>());
-    }
+  public void mosaic(int seeds) throws IllegalArgumentException {
+    mosaic(seeds, new Random());
+  }
 
-    mapPoints = clusterMap(seed, mapPoints);
-    mapColors = averageColors(mapPoints);
+  @Override
+  public void mosaic(int seeds, long rngSeed) throws IllegalArgumentException {
+    mosaic(seeds, new Random(rngSeed));
+  }
 
-    mosaicHelper(mapPoints, mapColors);
+  @Override
+  public void mosaic(int seeds, long rngSeed, MosaicEngine engine)
+      throws IllegalArgumentException {
+    mosaic(seeds, new Random(rngSeed), engine);
+  }
 
+  /**
+   * Applies a mosaic with seeds placed by the given random number generator.
+   *
+   * @param seeds number of seeds
+   * @param rand  generator of the seed locations
+   * @throws IllegalArgumentException if seeds is not positive
+   */
+  private void mosaic(int seeds, Random rand) throws IllegalArgumentException {
+    mosaic(seeds, rand, MosaicEngine.NEAREST_SEED);
   }
 
   /**
-   * Finds the average colors of a cluster and assigns the average color to its seed.
+   * Applies a mosaic with seeds placed by the given random number generator, finding the closest
+   * seeds with the given engine.
    *
-   * @param mapPoints map of seeds and associated closest pixel locations
-   * @return a map of each seed to the average color of the cluster
+   * @param seeds  number of seeds
+   * @param rand   generator of the seed locations
+   * @param engine how to find the closest seed of every pixel
+   * @throws IllegalArgumentException if seeds is not positive or engine is null
    */
-  private Map<Point2D, IPixel> averageColors(Map<Point2D, List<Point2D>> mapPoints) {
-    Map<Point2D, IPixel> newMap = new HashMap<>();
-    for (Point2D seed : mapPoints.keySet()) {
-      IPixel averageColor = new Pixel(0, 0, 0);
-      int numColors = 0;
-      for (Point2D pixel : mapPoints.get(seed)) {
-        averageColor = averageColor.add(this.pixelArray[(int) pixel.getY()][(int) pixel.getX()]);
-        numColors += 1;
-      }
-      averageColor = averageColor.divide(numColors);
-      averageColor.clampBounds(this.maxColor);
-      newMap.put(seed, averageColor);
+  private void mosaic(int seeds, Random rand, MosaicEngine engine)
+      throws IllegalArgumentException {
+    if (seeds <= 0) {
+      throw new IllegalArgumentException("Invalid seeds");
     }
-    return newMap;
+    if (engine == null) {
+      throw new IllegalArgumentException("Null Parameter");
+    }
+    evaluate();
+    int[] seedXs = new int[seeds];
+    int[] seedYs = new int[seeds];
+    placeSeeds(rand, seedXs, seedYs);
+    mosaic(seedXs, seedYs, engine, new int[width * height], this.pixels);
+    modified();
   }
 
   /**
-   * Create a mapping of seeds to its cluster.
+   * Applies a mosaic with each of the given numbers of seeds to the pixels of this image, which
+   * are left unchanged, and passes the pixels of every result to the given consumer as soon as it
+   * is done. The pixels are only evaluated once and the seeds are only placed once, for the
+   * largest number of seeds; every result uses the first seeds of those, which are the seeds
+   * {@code mosaic(int, long, MosaicEngine)} would place. So every result is the image that mosaic
+   * gives with the same arguments. The labels of the pixels and the counters of the clusters are
+   * reused from one result to the next; the closest seeds are searched for again for every
+   * result, since every number of seeds has its own.
    *
-   * @param seeds List of seeds
-   * @param map   map of seed to all pixels associated in its cluster
-   * @return a complete mapping of seeds to its cluster.
+   * @param seeds   number of seeds of every result, in the order to produce them
+   * @param rngSeed seed of the random number generator placing the seeds
+   * @param engine  how to find the closest seed of every pixel
+   * @param each    receives the packed pixels of every result, in a new array
+   * @throws IllegalArgumentException if seeds is empty or holds a number that is not positive, or
+   *                                  any argument is null
    */
-  private Map<Point2D, List<Point2D>> clusterMap(List<Point2D> seeds,
-      Map<Point2D, List<Point2D>> map) {
-    Map<Point2D, List<Point2D>> newMap = map;
-    for (int h = 0; h < height; h++) {
-      for (int w = 0; w < width; w++) {
-        Point2D closestSeed = findClosestSeed(h, w, seeds);
-        List<Point2D> listAddition = newMap.get(closestSeed);
-        listAddition.add(new Point(w, h));
-        newMap.put(closestSeed, newMap.get(closestSeed));
+  protected void mosaicPixels(int[] seeds, long rngSeed, MosaicEngine engine, Consumer<int[]> each)
+      throws IllegalArgumentException {
+    if (seeds == null || engine == null || each == null) {
+      throw new IllegalArgumentException("Null Parameter");
+    }
+    int most = 0;
+    for (int count : seeds) {
+      if (count <= 0) {
+        throw new IllegalArgumentException("Invalid seeds");
       }
+      most = Math.max(most, count);
     }
-    return newMap;
+    if (most == 0) {
+      throw new IllegalArgumentException("Invalid seeds");
+    }
+    evaluate();
+    int[] seedXs = new int[most];
+    int[] seedYs = new int[most];
+    placeSeeds(new Random(rngSeed), seedXs, seedYs);
+    int[] labels = new int[width * height];
+    for (int count : seeds) {
+      int[] result = new int[this.pixels.length];
+      mosaic(Arrays.copyOf(seedXs, count), Arrays.copyOf(seedYs, count), engine, labels, result);
+      each.accept(result);
+    }
+  }
 
+  // places every seed at a random location, x first
+  private void placeSeeds(Random rand, int[] seedXs, int[] seedYs) {
+    for (int i = 0; i < seedXs.length; i++) {
+      seedXs[i] = rand.nextInt(this.width);
+      seedYs[i] = rand.nextInt(this.height);
+    }
+  }
+
+  // writes the mosaic of the pixels of this image with the given seeds into dest, may be pixels,
+  // labeling the pixels in the given array
+  private void mosaic(int[] seedXs, int[] seedYs, MosaicEngine engine, int[] labels,
+      int[] dest) {
+    if (engine == MosaicEngine.SWEEP && VoronoiSweep.isExact(width, height)) {
+      VoronoiSweep.label(seedXs, seedYs, width, height, labels);
+    } else {
+      labelPixels(seedXs, seedYs, labels);
+    }
+    averageClusters(labels, seedXs.length, dest);
+  }
+
+  /**
+   * Labels every pixel with the index of its closest seed. Of the seeds at the smallest distance
+   * the first one wins, so seeds at the same location form a single cluster. The closest seed is
+   * looked up in a {@code SeedGrid} unless the image is too big for it to match
+   * {@code findClosestSeed}. Rows are labeled in parallel bands.
+   *
+   * @param seedXs x location of every seed
+   * @param seedYs y location of every seed
+   * @param labels receives the seed index of every pixel, row by row
+   */
+  private void labelPixels(int[] seedXs, int[] seedYs, int[] labels) {
+    SeedGrid grid = SeedGrid.isExact(width, height)
+        ? new SeedGrid(seedXs, seedYs, width, height) : null;
+    RowBands.forEach(width, height, (rowStart, rowEnd) -> {
+      for (int h = rowStart; h < rowEnd; h++) {
+        for (int w = 0; w < width; w++) {
+          labels[h * width + w] = grid == null ? findClosestSeed(h, w, seedXs, seedYs)
+              : grid.nearest(w, h);
+        }
+      }
+    });
   }
 
   /**
-   * For every cluster, sets each pixel in the cluster to the average color of the cluster.
+   * Sets every pixel of dest to the average color of the pixels of this image with the same label,
+   * dest may be the pixels of this image. Colors are summed in ints that wrap around like
+   * {@code IPixel.add}, and the average is rounded like {@code IPixel.divide} without being
+   * clamped. Every band of rows sums into its own counters, which are then added up; the sums are
+   * integers so the order they are added in does not change the result. The counters of a band
+   * are kept by its thread for the next clusters to average.
    *
-   * @param mapPoints map of seeds to their clusters
-   * @param mapColor  map of seeds to the average color of the cluster
+   * @param labels seed index of every pixel
+   * @param seeds  number of seeds
+   * @param dest   packed pixels to write the averages into
    */
-  protected void mosaicHelper(Map<Point2D, List<Point2D>> mapPoints,
-      Map<Point2D, IPixel> mapColor) {
-    for (Map.Entry<Point2D, List<Point2D>> entry : mapPoints.entrySet()) {
-      for (Point2D pixel : entry.getValue()) {
-        this.pixelArray[(int) pixel.getY()][(int) pixel.getX()] = mapColor.get(entry.getKey());
+  private void averageClusters(int[] labels, int seeds, int[] dest) {
+    long[] sums = new long[seeds * 3];
+    int[] counts = new int[seeds];
+    // one band per thread, every band allocates counters for all of the seeds
+    int bandRows = (height + RowBands.getParallelism() - 1) / RowBands.getParallelism();
+    RowBands.forEach(width, height, bandRows, (rowStart, rowEnd) -> {
+      long[] bandSums = BAND_SUMS.get(seeds * 3);
+      int[] bandCounts = BAND_COUNTS.get(seeds);
+      Arrays.fill(bandSums, 0, seeds * 3, 0);
+      Arrays.fill(bandCounts, 0, seeds, 0);
+      for (int p = rowStart * width; p < rowEnd * width; p++) {
+        int label = labels[p];
+        bandCounts[label]++;
+        bandSums[label * 3] += pixels[p * 3];
+        bandSums[label * 3 + 1] += pixels[p * 3 + 1];
+        bandSums[label * 3 + 2] += pixels[p * 3 + 2];
+      }
+      synchronized (sums) {
+        for (int k = 0; k < sums.length; k++) {
+          sums[k] += bandSums[k];
+        }
+        for (int k = 0; k < counts.length; k++) {
+          counts[k] += bandCounts[k];
+        }
+      }
+    });
+
+    int[] averages = new int[seeds * 3];
+    for (int s = 0; s < seeds; s++) {
+      if (counts[s] == 0) {
+        continue;
+      }
+      for (int c = 0; c < 3; c++) {
+        averages[s * 3 + c] = (int) Math.round((int) sums[s * 3 + c] / (double) counts[s]);
       }
     }
+
+    RowBands.forEach(width, height, (rowStart, rowEnd) -> {
+      for (int p = rowStart * width; p < rowEnd * width; p++) {
+        System.arraycopy(averages, labels[p] * 3, dest, p * 3, 3);
+      }
+    });
   }
 
   /**
-   * Return the closest seed in the given list of seeds to this pixel.
+   * Return the index of the closest of the given seeds to this pixel, the first one of those at
+   * the smallest distance.
    *
-   * @param h    y location of pixel
-   * @param w    x location of pixel
-   * @param seed list of all generated seeds
-   * @return the closest seed to the given h,w
+   * @param h      y location of pixel
+   * @param w      x location of pixel
+   * @param seedXs x location of every seed
+   * @param seedYs y location of every seed
+   * @return the index of the closest seed to the given h,w
    */
-  protected Point2D findClosestSeed(int h, int w, List<Point2D> seed) {
+  protected int findClosestSeed(int h, int w, int[] seedXs, int[] seedYs) {
     double smallestDist = Integer.MAX_VALUE;
-    Point2D closestSeed = seed.get(0);
+    int closestSeed = 0;
 
-    for (Point2D point : seed) {
-      if (point.distance(w, h) < smallestDist) {
-        closestSeed = point;
-        smallestDist = point.distance(w, h);
+    for (int i = 0; i < seedXs.length; i++) {
+      double distance = Point2D.distance(seedXs[i], seedYs[i], w, h);
+      if (distance < smallestDist) {
+        closestSeed = i;
+        smallestDist = distance;
       }
     }
 
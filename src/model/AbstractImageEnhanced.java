@@ -2,14 +2,34 @@ package model;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Enhanced version of AbstractImage class. Includes support for swapping between different image
  * formats, method to compare dimensions of images, method to create deep copy, and method to export
  * as PNG, JPG formats.
+ *
+ * <p>The images of other formats, the BufferedImage and the bytes made from this image are kept
+ * for as long as its pixels stay at the same modification version, so converting, showing or
+ * saving an unchanged image again costs nothing. They are only softly referenced and are made
+ * again if the garbage collector needed the memory. The BufferedImage and the bytes are shared
+ * by every caller and must not be changed.</p>
  */
 public abstract class AbstractImageEnhanced extends AbstractImage implements IImageConverter {
 
+  private final VersionCache<IImageConverter> ppmView = new VersionCache<>();
+  private final VersionCache<IImageConverter> jpegView = new VersionCache<>();
+  private final VersionCache<IImageConverter> pngView = new VersionCache<>();
+  private final VersionCache<IImageConverter> binaryPpmView = new VersionCache<>();
+  private final VersionCache<BufferedImage> bufferedImage = new VersionCache<>();
+  private final VersionCache<byte[]> encoded = new VersionCache<>();
+
   /**
    * Delegate constructing Image to super class.
    *
@@ -23,24 +43,152 @@ public abstract class AbstractImageEnhanced extends AbstractImage implements IIm
     super(width, height, maxColor, pixelArray);
   }
 
+  /**
+   * Delegate constructing Image from packed pixels to super class.
+   *
+   * @param width    width of image
+   * @param height   height of image
+   * @param maxColor max int color value of image
+   * @param pixels   packed color components of the image
+   */
+  protected AbstractImageEnhanced(int width, int height, int maxColor, int[] pixels) {
+    super(width, height, maxColor, pixels);
+  }
+
 
   @Override
   public IImageConverter toPPM() {
-    return new PPMImageEnhanced(width, height, maxColor, pixelArray);
+    return view(ppmView, pixels -> new PPMImageEnhanced(width, height, maxColor, pixels));
   }
 
   @Override
   public IImageConverter toJPEG() {
-    return new JPEGImage(width, height, maxColor, pixelArray);
+    return view(jpegView, pixels -> new JPEGImage(width, height, maxColor, pixels));
   }
 
   @Override
   public IImageConverter toPNG() {
-    return new PNGImage(width, height, maxColor, pixelArray);
+    return view(pngView, pixels -> new PNGImage(width, height, maxColor, pixels));
+  }
+
+  @Override
+  public IImageConverter toBinaryPPM() throws IllegalArgumentException {
+    PPMBinaryImage.checkMaxColor(maxColor);
+    return view(binaryPpmView, pixels -> new PPMBinaryImage(width, height, maxColor, pixels));
+  }
+
+  // returns the image of another format over the pixels of this one, made again if they changed
+  private IImageConverter view(VersionCache<IImageConverter> cache,
+      Function<int[], AbstractImageEnhanced> format) {
+    evaluate();
+    IImageConverter view = cache.get(getVersion());
+    if (view == null) {
+      AbstractImageEnhanced image = format.apply(sharePixels());
+      image.markShared(this);
+      cache.put(getVersion(), image);
+      view = image;
+    }
+    return view;
+  }
+
+  /**
+   * Returns the bytes of this image, encoded again only if its pixels changed since they were
+   * last encoded.
+   *
+   * @return the byte data of this image, which must not be changed
+   */
+  @Override
+  public byte[] getBytes() {
+    evaluate();
+    byte[] data = encoded.get(getVersion());
+    if (data == null) {
+      data = encode();
+      encoded.put(getVersion(), data);
+    }
+    return data;
+  }
+
+  /**
+   * Encodes this image in its file format.
+   *
+   * @return the byte data of this image
+   * @throws IllegalStateException if the image could not be encoded
+   */
+  protected byte[] encode() throws IllegalStateException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      encode(output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not encode image");
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Writes the bytes of this image to the given stream, the ones kept from the last time they were
+   * made if the pixels did not change since, otherwise encoding them straight into the stream and
+   * keeping a copy for the next time.
+   *
+   * @param output where to write the bytes of this image
+   * @throws IOException              if the stream cannot be written to
+   * @throws IllegalArgumentException if output is null
+   */
+  @Override
+  public void writeTo(OutputStream output) throws IOException, IllegalArgumentException {
+    if (output == null) {
+      throw new IllegalArgumentException("Null Parameter");
+    }
+    evaluate();
+    long version = getVersion();
+    byte[] data = encoded.get(version);
+    if (data != null) {
+      output.write(data);
+      return;
+    }
+    ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    encode(new FilterOutputStream(output) {
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+        copy.write(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        copy.write(b, off, len);
+      }
+    });
+    encoded.put(version, copy.toByteArray());
   }
 
+  /**
+   * Encodes this image in its file format into the given stream.
+   *
+   * @param output where to write the bytes of this image
+   * @throws IOException if the stream cannot be written to
+   */
+  protected abstract void encode(OutputStream output) throws IOException;
+
   @Override
-  public abstract byte[] getBytes();
+  public void setDeferred(boolean deferred) {
+    this.deferred = deferred;
+    if (!deferred) {
+      evaluate();
+    }
+  }
+
+  @Override
+  public void setColorComposition(ColorComposition composition)
+      throws IllegalArgumentException {
+    if (composition == null) {
+      throw new IllegalArgumentException("Null Input");
+    }
+    this.colorComposition = composition;
+    if (composition == ColorComposition.EXACT && !deferred) {
+      evaluate();
+    }
+  }
 
   @Override
   public boolean compareDimensions(IImageConverter that) {
@@ -53,38 +201,64 @@ public abstract class AbstractImageEnhanced extends AbstractImage implements IIm
 
   @Override
   public IImageConverter copy() {
+    evaluate();
+    return fromImage(width, height, maxColor, this.pixels.clone());
+  }
 
-    IPixel[][] copyArray = new IPixel[height][width];
-    for (int h = 0; h < height; h++) {
-      for (int w = 0; w < width; w++) {
-        copyArray[h][w] = this.pixelArray[h][w];
-      }
+  @Override
+  public void mosaics(int[] seeds, long rngSeed, MosaicEngine engine,
+      Consumer<IImageConverter> each) throws IllegalArgumentException {
+    if (each == null) {
+      throw new IllegalArgumentException("Null Parameter");
     }
-
-    return fromImage(width, height, maxColor, copyArray);
+    mosaicPixels(seeds, rngSeed, engine,
+        pixels -> each.accept(fromImage(width, height, maxColor, pixels)));
   }
 
   /**
    * Factory method for creating Images.
    *
-   * @param width      width of image
-   * @param height     height of image
-   * @param maxColor   maxColor int value of image
-   * @param pixelArray array of pixels representing the image
+   * @param width    width of image
+   * @param height   height of image
+   * @param maxColor maxColor int value of image
+   * @param pixels   packed color components representing the image
    * @return instance of this Image with specified fields
    */
   protected abstract IImageConverter fromImage(int width, int height, int maxColor,
-      IPixel[][] pixelArray);
+      int[] pixels);
 
+  /**
+   * Returns this image as an RGB BufferedImage, filling the int array behind its raster directly.
+   * The BufferedImage is only made again if the pixels changed since it was last made.
+   *
+   * @return this image as a BufferedImage, which must not be changed
+   * @throws IllegalArgumentException like {@code java.awt.Color} if a color component is outside
+   *                                  of [0, 255]
+   */
   @Override
-  public BufferedImage getBufferedImage() {
+  public BufferedImage getBufferedImage() throws IllegalArgumentException {
+    evaluate();
+    BufferedImage image = bufferedImage.get(getVersion());
+    if (image == null) {
+      image = makeBufferedImage();
+      bufferedImage.put(getVersion(), image);
+    }
+    return image;
+  }
+
+  // makes an RGB BufferedImage of the evaluated pixels of this image
+  private BufferedImage makeBufferedImage() throws IllegalArgumentException {
     BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-    for (int y = 0; y < pixelArray.length; y += 1) {
-      for (int x = 0; x < pixelArray[0].length; x += 1) {
-        IPixel pixel = pixelArray[y][x];
-        Color color = new Color(pixel.getRed(), pixel.getGreen(), pixel.getBlue());
-        image.setRGB(x, y, color.getRGB());
+    int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    for (int p = 0; p < data.length; p++) {
+      int red = pixels[p * 3];
+      int green = pixels[p * 3 + 1];
+      int blue = pixels[p * 3 + 2];
+      if (((red | green | blue) & ~0xff) != 0) {
+        // throws the exception of a color out of range
+        new Color(red, green, blue);
       }
+      data[p] = (red << 16) | (green << 8) | blue;
     }
     return image;
   }
@@ -0,0 +1,131 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Blurs an image by averaging it over a square window three times in a row, which approximates a
+ * gaussian blur. Every pass keeps running sums of the window, sliding down the columns and along
+ * the rows, so the cost per pixel does not depend on the radius. Only pixels inside the image are
+ * averaged, so the edges are not darkened.
+ */
+final class BoxBlur implements Filter {
+
+  private static final int PASSES = 3;
+
+  // the pixels between passes, and the column sums of every band
+  private static final ScratchBuffer<int[]> PASS_PIXELS =
+      new ScratchBuffer<>(int[]::new, array -> array.length);
+  private static final ScratchBuffer<long[]> COLUMN_SUMS =
+      new ScratchBuffer<>(long[]::new, array -> array.length);
+
+  private final int radius;
+
+  /**
+   * Constructs a box blur averaging over a window of (2 * radius + 1) pixels on each side.
+   *
+   * @param radius radius of the window
+   * @throws IllegalArgumentException if radius is not positive
+   */
+  BoxBlur(int radius) throws IllegalArgumentException {
+    if (radius <= 0) {
+      throw new IllegalArgumentException("Invalid radius");
+    }
+    this.radius = radius;
+  }
+
+  @Override
+  public void apply(int[] src, int[] dest, int width, int height, int maxColor,
+      RowBands.RowOperation then) {
+    // a window larger than the image averages the same pixels as one the size of the image
+    int r = Math.min(radius, Math.max(width, height));
+    int[] temp = PASS_PIXELS.get(src.length);
+    int[] in = src;
+    for (int pass = 0; pass < PASSES; pass++) {
+      // the last pass must end up in dest
+      int[] out = (PASSES - pass) % 2 == 1 ? dest : temp;
+      int[] passIn = in;
+      boolean last = pass == PASSES - 1;
+      RowBands.forEach(width, height, 2 * r + 1, (rowStart, rowEnd) -> {
+        average(passIn, out, width, height, maxColor, r, rowStart, rowEnd);
+        if (last) {
+          then.apply(rowStart, rowEnd);
+        }
+      });
+      in = out;
+    }
+  }
+
+  /**
+   * Writes the average of the window around every pixel of the rows [rowStart, rowEnd) of src to
+   * the same rows of out.
+   *
+   * @param src      packed pixels to read
+   * @param out      packed pixels to write, must not be src
+   * @param width    width of the image
+   * @param height   height of the image
+   * @param maxColor max color value to clamp to
+   * @param r        radius of the window
+   * @param rowStart first row to write, inclusive
+   * @param rowEnd   last row to write, exclusive
+   */
+  private static void average(int[] src, int[] out, int width, int height, int maxColor, int r,
+      int rowStart, int rowEnd) {
+    int rowStride = width * 3;
+    // sum of each column component over the rows of the window
+    long[] columnSums = COLUMN_SUMS.get(rowStride);
+    Arrays.fill(columnSums, 0, rowStride, 0);
+    for (int row = Math.max(0, rowStart - r); row <= Math.min(height - 1, rowStart + r); row++) {
+      addRow(src, columnSums, row * rowStride, rowStride, 1);
+    }
+
+    for (int h = rowStart; h < rowEnd; h++) {
+      int rows = Math.min(height - 1, h + r) - Math.max(0, h - r) + 1;
+      long red = 0;
+      long green = 0;
+      long blue = 0;
+      for (int x = 0; x <= Math.min(r, width - 1); x++) {
+        red += columnSums[x * 3];
+        green += columnSums[x * 3 + 1];
+        blue += columnSums[x * 3 + 2];
+      }
+
+      int p = h * rowStride;
+      for (int w = 0; w < width; w++) {
+        double count = (double) rows * (Math.min(width - 1, w + r) - Math.max(0, w - r) + 1);
+        out[p] = Kernel.clamp((int) Math.round(red / count), maxColor);
+        out[p + 1] = Kernel.clamp((int) Math.round(green / count), maxColor);
+        out[p + 2] = Kernel.clamp((int) Math.round(blue / count), maxColor);
+        p += 3;
+
+        int enter = w + r + 1;
+        if (enter < width) {
+          red += columnSums[enter * 3];
+          green += columnSums[enter * 3 + 1];
+          blue += columnSums[enter * 3 + 2];
+        }
+        int leave = w - r;
+        if (leave >= 0) {
+          red -= columnSums[leave * 3];
+          green -= columnSums[leave * 3 + 1];
+          blue -= columnSums[leave * 3 + 2];
+        }
+      }
+
+      int enter = h + r + 1;
+      if (enter < height) {
+        addRow(src, columnSums, enter * rowStride, rowStride, 1);
+      }
+      int leave = h - r;
+      if (leave >= 0) {
+        addRow(src, columnSums, leave * rowStride, rowStride, -1);
+      }
+    }
+  }
+
+  // adds sign times the row of src starting at the given component to the column sums
+  private static void addRow(int[] src, long[] columnSums, int start, int rowStride, int sign) {
+    for (int i = 0; i < rowStride; i++) {
+      columnSums[i] += sign * src[start + i];
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package model;
+
+/**
+ * How consecutive color transformations (greyscale, sepia) on an image are combined.
+ */
+public enum ColorComposition {
+
+  /**
+   * Every transformation is truncated and clamped on its own, exactly like applying them one at a
+   * time. Consecutive transformations still share a single pass over the image.
+   */
+  EXACT,
+
+  /**
+   * Consecutive transformations are multiplied into a single matrix that is applied once, so
+   * intermediate results are neither truncated nor clamped. Colors may differ slightly from
+   * applying them one at a time.
+   */
+  FAST
+}
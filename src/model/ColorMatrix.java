@@ -0,0 +1,204 @@
+package model;
+
+import java.util.List;
+
+/**
+ * A 3x3 color transformation matrix. Every output color is a linear combination of the red, green
+ * and blue components of the input, accumulated and truncated term by term exactly like
+ * {@code IPixel.linearCombine}, then clamped. For every component in [0, maxColor] the products
+ * are looked up in per-channel tables instead of being multiplied for every pixel, unless
+ * {@code PixelLoops} are available to transform several pixels at once.
+ */
+final class ColorMatrix {
+
+  // largest max color that gets lookup tables, bigger ranges multiply directly
+  private static final int MAX_TABLE_COLOR = (1 << 16) - 1;
+
+  private final double[] matrix;
+  private volatile Tables tables;
+
+  /**
+   * Constructs a color matrix from the given rows.
+   *
+   * @param rows the three rows of three weights
+   * @throws IllegalArgumentException if the matrix is not 3x3
+   */
+  ColorMatrix(double[][] rows) throws IllegalArgumentException {
+    if (rows == null || rows.length != 3) {
+      throw new IllegalArgumentException("Invalid matrix");
+    }
+    this.matrix = new double[9];
+    for (int row = 0; row < 3; row++) {
+      if (rows[row] == null || rows[row].length != 3) {
+        throw new IllegalArgumentException("Invalid matrix");
+      }
+      System.arraycopy(rows[row], 0, matrix, row * 3, 3);
+    }
+  }
+
+  /**
+   * Constructs a color matrix from the given boxed rows.
+   *
+   * @param rows the three rows of three weights
+   * @throws IllegalArgumentException if the matrix is not 3x3
+   */
+  ColorMatrix(List<List<Double>> rows) throws IllegalArgumentException {
+    this(unbox(rows));
+  }
+
+  private static double[][] unbox(List<List<Double>> rows) throws IllegalArgumentException {
+    if (rows == null || rows.size() != 3) {
+      throw new IllegalArgumentException("Invalid matrix");
+    }
+    double[][] unboxed = new double[3][];
+    for (int row = 0; row < 3; row++) {
+      if (rows.get(row) == null || rows.get(row).size() != 3) {
+        throw new IllegalArgumentException("Invalid matrix");
+      }
+      unboxed[row] = new double[3];
+      for (int column = 0; column < 3; column++) {
+        unboxed[row][column] = rows.get(row).get(column);
+      }
+    }
+    return unboxed;
+  }
+
+  /**
+   * Returns the matrix that transforms colors like this matrix followed by the given one, without
+   * truncating or clamping in between.
+   *
+   * @param next matrix applied after this one
+   * @return the product of next and this matrix
+   */
+  ColorMatrix then(ColorMatrix next) {
+    double[][] product = new double[3][3];
+    for (int row = 0; row < 3; row++) {
+      for (int column = 0; column < 3; column++) {
+        double sum = 0;
+        for (int k = 0; k < 3; k++) {
+          sum += next.matrix[row * 3 + k] * this.matrix[k * 3 + column];
+        }
+        product[row][column] = sum;
+      }
+    }
+    return new ColorMatrix(product);
+  }
+
+  /**
+   * Transforms the colors of every source pixel and writes the clamped result to dest. Rows are
+   * split into bands that run in parallel.
+   *
+   * @param src      packed pixels to read
+   * @param dest     packed pixels to write, may be src
+   * @param width    width of the image
+   * @param height   height of the image
+   * @param maxColor max color value to clamp to
+   */
+  void apply(int[] src, int[] dest, int width, int height, int maxColor) {
+    ColorMatrix[] chain = {this};
+    RowBands.forEach(width, height, (rowStart, rowEnd) ->
+        applyAll(chain, src, dest, maxColor, rowStart * width * 3, rowEnd * width * 3));
+  }
+
+  /**
+   * Transforms the colors of the packed components in [start, end) of src by every matrix of the
+   * chain in order, writing the result to dest. Each pixel goes through the whole chain before
+   * the next one is read, with the same clamping after every matrix as applying them one by one.
+   *
+   * @param chain    matrices to apply, in order
+   * @param src      packed pixels to read
+   * @param dest     packed pixels to write, may be src
+   * @param maxColor max color value to clamp to
+   * @param start    index of the first component to transform, inclusive
+   * @param end      index of the last component to transform, exclusive
+   */
+  static void applyAll(ColorMatrix[] chain, int[] src, int[] dest, int maxColor, int start,
+      int end) {
+    if (chain.length == 0) {
+      if (src != dest) {
+        System.arraycopy(src, start, dest, start, end - start);
+      }
+      return;
+    }
+    Tables[] lookups = new Tables[chain.length];
+    for (int m = 0; m < chain.length; m++) {
+      lookups[m] = chain[m].tablesFor(maxColor);
+    }
+    PixelLoops loops = PixelLoops.get();
+    if (loops != null) {
+      double[][] matrices = new double[chain.length][];
+      for (int m = 0; m < chain.length; m++) {
+        matrices[m] = chain[m].matrix;
+      }
+      start += loops.transformColors(matrices, src, dest, start, (end - start) / 3, maxColor) * 3;
+    }
+    for (int i = start; i < end; i += 3) {
+      chain[0].transform(src, dest, i, maxColor, lookups[0]);
+      for (int m = 1; m < chain.length; m++) {
+        chain[m].transform(dest, dest, i, maxColor, lookups[m]);
+      }
+    }
+  }
+
+  // transforms the pixel at component index i of src and writes it to dest
+  private void transform(int[] src, int[] dest, int i, int maxColor, Tables lookup) {
+    int red = src[i];
+    int green = src[i + 1];
+    int blue = src[i + 2];
+    if (lookup != null && red >= 0 && green >= 0 && blue >= 0
+        && red <= maxColor && green <= maxColor && blue <= maxColor) {
+      for (int row = 0; row < 3; row++) {
+        double[][] channel = lookup.products[row];
+        int newColor = (int) channel[0][red];
+        newColor = (int) (newColor + channel[1][green]);
+        newColor = (int) (newColor + channel[2][blue]);
+        dest[i + row] = Kernel.clamp(newColor, maxColor);
+      }
+    } else {
+      for (int row = 0; row < 3; row++) {
+        int newColor = 0;
+        newColor += matrix[row * 3] * red;
+        newColor += matrix[row * 3 + 1] * green;
+        newColor += matrix[row * 3 + 2] * blue;
+        dest[i + row] = Kernel.clamp(newColor, maxColor);
+      }
+    }
+  }
+
+  // returns the lookup tables for the given max color, building them if needed
+  private Tables tablesFor(int maxColor) {
+    if (maxColor < 0 || maxColor > MAX_TABLE_COLOR) {
+      return null;
+    }
+    Tables current = tables;
+    if (current == null || current.maxColor != maxColor) {
+      current = new Tables(matrix, maxColor);
+      tables = current;
+    }
+    return current;
+  }
+
+  /**
+   * The product of every matrix weight with every component value in [0, maxColor].
+   */
+  private static final class Tables {
+
+    private final int maxColor;
+    // products[row][column][value] = matrix[row][column] * value
+    private final double[][][] products;
+
+    Tables(double[] matrix, int maxColor) {
+      this.maxColor = maxColor;
+      this.products = new double[3][3][maxColor + 1];
+      for (int row = 0; row < 3; row++) {
+        for (int column = 0; column < 3; column++) {
+          double weight = matrix[row * 3 + column];
+          double[] table = products[row][column];
+          for (int value = 0; value <= maxColor; value++) {
+            table[value] = weight * value;
+          }
+        }
+      }
+    }
+  }
+}
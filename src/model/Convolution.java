@@ -0,0 +1,62 @@
+package model;
+
+/**
+ * Chooses how to apply a user supplied convolution kernel. Kernels that can be written as a few
+ * separable terms are applied one term at a time as a horizontal and a vertical pass when that
+ * takes fewer taps per pixel, large kernels that cannot are applied with fast fourier transforms
+ * and every other kernel is applied directly.
+ */
+final class Convolution {
+
+  /**
+   * Smallest kernel size applied with fast fourier transforms.
+   */
+  static final int FFT_MIN_SIZE = 15;
+  // rough cost per pixel of the transforms, in taps of a direct convolution
+  private static final int FFT_TAPS = 128;
+
+  private Convolution() {
+  }
+
+  /**
+   * Returns the cheapest filter that convolves with the given kernel.
+   *
+   * @param rows square kernel of odd size
+   * @return a filter applying the kernel, rounding only the sum of every pixel; with fast fourier
+   *     transforms floating point error can change a component by 1
+   * @throws IllegalArgumentException if the kernel is not square, has even dimensions or weights
+   *                                  that are not finite
+   */
+  static Filter of(double[][] rows) throws IllegalArgumentException {
+    Kernel direct = new Kernel(rows, false);
+    for (double[] row : rows) {
+      for (double weight : row) {
+        if (!Double.isFinite(weight)) {
+          throw new IllegalArgumentException("Invalid Kernel");
+        }
+      }
+    }
+    int size = rows.length;
+    if (size == 1) {
+      return direct;
+    }
+
+    SeparableKernel separable = SeparableKernel.separate(rows);
+    if (separable == null && size >= FFT_MIN_SIZE && 2 * 2 * size > FFT_TAPS) {
+      // two or more terms already cost more than the transforms
+      return new FftKernel(rows);
+    }
+    if (separable == null) {
+      separable = SeparableKernel.decompose(rows);
+    }
+    // every term costs a horizontal and a vertical pass of size taps
+    int separableTaps = separable.rank() * 2 * size;
+    if (size >= FFT_MIN_SIZE && separableTaps > FFT_TAPS) {
+      return new FftKernel(rows);
+    }
+    if (separableTaps < size * size) {
+      return separable;
+    }
+    return direct;
+  }
+}
@@ -0,0 +1,221 @@
+package model;
+
+/**
+ * Convolves an image with a large kernel using fast fourier transforms. The image is cut into
+ * square tiles; every tile is transformed together with the kernel sized border of pixels around
+ * it, multiplied with the transform of the kernel and transformed back, and only the part of the
+ * result that did not wrap around is kept (overlap-save). The cost per pixel grows with the log of
+ * the tile size instead of with the area of the kernel. Pixels outside of the image are zero, like
+ * the taps that fall outside of the image in a direct convolution.
+ *
+ * <p>Results match a direct convolution that rounds only the sum of every pixel, except where
+ * floating point error moves a sum across a rounding boundary: components then differ by at most
+ * 1.</p>
+ */
+final class FftKernel implements Filter {
+
+  private final double[] weights;
+  private final int size;
+
+  /**
+   * Constructs a kernel from the given rows of weights.
+   *
+   * @param rows rows of the kernel
+   * @throws IllegalArgumentException if the kernel is not square or has even dimensions
+   */
+  FftKernel(double[][] rows) throws IllegalArgumentException {
+    if (rows == null || rows.length % 2 == 0) {
+      throw new IllegalArgumentException("Invalid Kernel");
+    }
+    this.size = rows.length;
+    this.weights = new double[size * size];
+    for (int i = 0; i < size; i++) {
+      if (rows[i] == null || rows[i].length != size) {
+        throw new IllegalArgumentException("Invalid Kernel");
+      }
+      System.arraycopy(rows[i], 0, weights, i * size, size);
+    }
+  }
+
+  @Override
+  public void apply(int[] src, int[] dest, int width, int height, int maxColor,
+      RowBands.RowOperation then) {
+    // tiles about four times the kernel wide waste little on the border, but no bigger than needed
+    // to hold the whole image with its border
+    int fftSize = Math.min(Math.max(64, powerOfTwo(4 * size)),
+        powerOfTwo(Math.max(width, height) + size - 1));
+    int tileSize = fftSize - size + 1;
+    Transform transform = new Transform(fftSize);
+
+    // conjugate transform of the kernel, multiplying by it correlates like the direct kernel
+    double[] kernelRe = new double[fftSize * fftSize];
+    double[] kernelIm = new double[fftSize * fftSize];
+    for (int i = 0; i < size; i++) {
+      System.arraycopy(weights, i * size, kernelRe, i * fftSize, size);
+    }
+    transform.forward2d(kernelRe, kernelIm);
+    for (int k = 0; k < kernelIm.length; k++) {
+      kernelIm[k] = -kernelIm[k];
+    }
+
+    int tileRows = (height + tileSize - 1) / tileSize;
+    RowBands.forEach(width * tileSize, tileRows, 1, (tileStart, tileEnd) -> {
+      double[] re = new double[fftSize * fftSize];
+      double[] im = new double[fftSize * fftSize];
+      for (int tileRow = tileStart; tileRow < tileEnd; tileRow++) {
+        for (int x0 = 0; x0 < width; x0 += tileSize) {
+          int y0 = tileRow * tileSize;
+          // red and green share one complex transform, the kernel is real so they stay apart
+          load(src, width, height, y0, x0, 0, 1, re, im, fftSize);
+          filterTile(transform, re, im, kernelRe, kernelIm);
+          store(re, im, dest, width, height, y0, x0, tileSize, fftSize, maxColor, 0, 1);
+
+          load(src, width, height, y0, x0, 2, -1, re, im, fftSize);
+          filterTile(transform, re, im, kernelRe, kernelIm);
+          store(re, im, dest, width, height, y0, x0, tileSize, fftSize, maxColor, 2, -1);
+        }
+      }
+      then.apply(tileStart * tileSize, Math.min(height, tileEnd * tileSize));
+    });
+  }
+
+  // smallest power of two at least n
+  private static int powerOfTwo(int n) {
+    return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+  }
+
+  // copies the tile at (y0, x0) and its border into re and im, the given components as the
+  // real and imaginary parts, a negative component meaning zero
+  private void load(int[] src, int width, int height, int y0, int x0, int realComponent,
+      int imaginaryComponent, double[] re, double[] im, int fftSize) {
+    int radius = size / 2;
+    for (int i = 0; i < fftSize; i++) {
+      int row = y0 - radius + i;
+      int start = i * fftSize;
+      for (int j = 0; j < fftSize; j++) {
+        int column = x0 - radius + j;
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+          re[start + j] = 0;
+          im[start + j] = 0;
+        } else {
+          int p = (row * width + column) * 3;
+          re[start + j] = src[p + realComponent];
+          im[start + j] = imaginaryComponent < 0 ? 0 : src[p + imaginaryComponent];
+        }
+      }
+    }
+  }
+
+  // multiplies the transform of the tile with the conjugate transform of the kernel
+  private static void filterTile(Transform transform, double[] re, double[] im, double[] kernelRe,
+      double[] kernelIm) {
+    transform.forward2d(re, im);
+    for (int k = 0; k < re.length; k++) {
+      double real = re[k] * kernelRe[k] - im[k] * kernelIm[k];
+      double imaginary = re[k] * kernelIm[k] + im[k] * kernelRe[k];
+      re[k] = real;
+      im[k] = imaginary;
+    }
+    transform.inverse2d(re, im);
+  }
+
+  // writes the part of the filtered tile that did not wrap around to dest
+  private static void store(double[] re, double[] im, int[] dest, int width, int height, int y0,
+      int x0, int tileSize, int fftSize, int maxColor, int realComponent,
+      int imaginaryComponent) {
+    for (int i = 0; i < tileSize && y0 + i < height; i++) {
+      int start = i * fftSize;
+      for (int j = 0; j < tileSize && x0 + j < width; j++) {
+        int p = ((y0 + i) * width + x0 + j) * 3;
+        dest[p + realComponent] = Kernel.clamp(re[start + j], maxColor);
+        if (imaginaryComponent >= 0) {
+          dest[p + imaginaryComponent] = Kernel.clamp(im[start + j], maxColor);
+        }
+      }
+    }
+  }
+
+  /**
+   * Iterative radix-2 fast fourier transform of square arrays of a power of two size, stored row
+   * by row as separate real and imaginary parts.
+   */
+  private static final class Transform {
+
+    private final int n;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] reversed;
+
+    Transform(int n) {
+      this.n = n;
+      this.cos = new double[n / 2];
+      this.sin = new double[n / 2];
+      for (int k = 0; k < n / 2; k++) {
+        cos[k] = Math.cos(-2 * Math.PI * k / n);
+        sin[k] = Math.sin(-2 * Math.PI * k / n);
+      }
+      this.reversed = new int[n];
+      int bits = Integer.numberOfTrailingZeros(n);
+      for (int k = 0; k < n; k++) {
+        reversed[k] = Integer.reverse(k) >>> (32 - bits);
+      }
+    }
+
+    void forward2d(double[] re, double[] im) {
+      transform2d(re, im, false);
+    }
+
+    void inverse2d(double[] re, double[] im) {
+      transform2d(re, im, true);
+      double scale = 1.0 / ((double) n * n);
+      for (int k = 0; k < re.length; k++) {
+        re[k] *= scale;
+        im[k] *= scale;
+      }
+    }
+
+    private void transform2d(double[] re, double[] im, boolean inverse) {
+      for (int row = 0; row < n; row++) {
+        transform(re, im, row * n, 1, inverse);
+      }
+      for (int column = 0; column < n; column++) {
+        transform(re, im, column, n, inverse);
+      }
+    }
+
+    // transforms the n values starting at offset, stride apart, in place
+    private void transform(double[] re, double[] im, int offset, int stride, boolean inverse) {
+      for (int k = 0; k < n; k++) {
+        int r = reversed[k];
+        if (r > k) {
+          int a = offset + k * stride;
+          int b = offset + r * stride;
+          double t = re[a];
+          re[a] = re[b];
+          re[b] = t;
+          t = im[a];
+          im[a] = im[b];
+          im[b] = t;
+        }
+      }
+      for (int length = 2; length <= n; length <<= 1) {
+        int half = length >> 1;
+        int step = n / length;
+        for (int start = 0; start < n; start += length) {
+          for (int k = 0; k < half; k++) {
+            double wr = cos[k * step];
+            double wi = inverse ? -sin[k * step] : sin[k * step];
+            int a = offset + (start + k) * stride;
+            int b = a + half * stride;
+            double tr = wr * re[b] - wi * im[b];
+            double ti = wr * im[b] + wi * re[b];
+            re[b] = re[a] - tr;
+            im[b] = im[a] - ti;
+            re[a] += tr;
+            im[a] += ti;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * A spatial filter over packed pixels, where every output pixel depends on a neighbourhood of
+ * source pixels. Filters tell the caller as soon as a band of output rows is final, so that point
+ * operations can be applied to the band while it is still in cache.
+ */
+interface Filter {
+
+  /**
+   * Filters the source pixels into dest and runs the given operation on every band of rows of
+   * dest once those rows hold their final, clamped value.
+   *
+   * @param src      packed pixels to read
+   * @param dest     packed pixels to write, must not be src
+   * @param width    width of the image
+   * @param height   height of the image
+   * @param maxColor max color value to clamp to
+   * @param then     operation to run on each finished band of rows of dest
+   */
+  void apply(int[] src, int[] dest, int width, int height, int maxColor,
+      RowBands.RowOperation then);
+}
@@ -1,6 +1,9 @@
 package model;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
 
 /**
  * Enhances the ImageEditor interfaces by adding methods to transfer from image format to image
@@ -31,6 +34,14 @@ public interface IImageConverter extends ImageEditorEnhanced {
    */
   IImageConverter toPNG();
 
+  /**
+   * Changes the instance of this image to binary PPM.
+   *
+   * @return binary ppm version of this image
+   * @throws IllegalArgumentException if the max color of this image is not in [1, 65535]
+   */
+  IImageConverter toBinaryPPM() throws IllegalArgumentException;
+
 
   /**
    * Return the byte data of this image. Extremely different for each different file format.
@@ -39,6 +50,35 @@ public interface IImageConverter extends ImageEditorEnhanced {
    */
   byte[] getBytes();
 
+  /**
+   * Encodes this image in its file format straight into the given stream, the same bytes as
+   * {@link #getBytes()} returns. The stream is not closed.
+   *
+   * @param output where to write the bytes of this image
+   * @throws IOException              if the stream cannot be written to
+   * @throws IllegalArgumentException if output is null
+   */
+  void writeTo(OutputStream output) throws IOException, IllegalArgumentException;
+
+  /**
+   * Turns deferred mode on or off. In deferred mode blur, sharpen, greyscale and sepia are only
+   * recorded, and are applied together once the pixels of this image are needed. Turning deferred
+   * mode off applies everything recorded so far.
+   *
+   * @param deferred whether editing operations should be deferred
+   */
+  void setDeferred(boolean deferred);
+
+  /**
+   * Sets how consecutive color transformations are combined. With {@code FAST} composition, color
+   * transformations wait until the pixels of this image are needed so that consecutive ones can be
+   * multiplied into a single matrix.
+   *
+   * @param composition how to combine consecutive color transformations
+   * @throws IllegalArgumentException if composition is null
+   */
+  void setColorComposition(ColorComposition composition) throws IllegalArgumentException;
+
   /**
    * Checks if this image and that image have the same dimensions.
    *
@@ -54,6 +94,22 @@ public interface IImageConverter extends ImageEditorEnhanced {
    */
   IImageConverter copy();
 
+  /**
+   * Applies a mosaic with each of the given numbers of seeds to a copy of this image, which is
+   * left unchanged, and passes every copy to the given consumer as soon as it is done. The image
+   * is only read once and the seeds are only placed once, so every copy is the image
+   * {@code mosaic(int, long, MosaicEngine)} gives with the same arguments.
+   *
+   * @param seeds   number of seeds of every copy, in the order to produce them
+   * @param rngSeed seed of the random number generator placing the seeds
+   * @param engine  how to find the closest seed of every pixel
+   * @param each    receives every copy
+   * @throws IllegalArgumentException if seeds is empty or holds a number that is not positive, or
+   *                                  any argument is null
+   */
+  void mosaics(int[] seeds, long rngSeed, MosaicEngine engine, Consumer<IImageConverter> each)
+      throws IllegalArgumentException;
+
   /**
    * Returns a BufferedImage version of this image. Used for extracting byte data for specific
    * formats using ImageIO.
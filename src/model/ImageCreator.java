@@ -1,10 +1,7 @@
 package model;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Scanner;
 
 /**
  * Factory class used for creating ImageEditor objects whether by reading data from a file or
@@ -100,54 +97,14 @@ public class ImageCreator {
    * Read an image file in the PPM format and print the colors.
    *
    * @param filename the path of the file.
-   * @throws IllegalArgumentException if the given file name is invalid
+   * @throws IllegalArgumentException if the given file name is invalid or not a PPM
    */
   public static ImageEditor readPPM(String filename) throws IllegalArgumentException {
-    Scanner sc;
-
     if (filename == null) {
       throw new IllegalArgumentException("Null File Name");
     }
-
-    try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
-      throw new IllegalArgumentException("File Error: " + e);
-    }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
-      }
-    }
-
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-
-    String token;
-
-    token = sc.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Improper PPM File");
-    }
-    int width = sc.nextInt();
-
-    int height = sc.nextInt();
-
-    int maxValue = sc.nextInt();
-
-    Pixel[][] pixelArray = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        pixelArray[i][j] = new Pixel(r, g, b);
-      }
-    }
-    return new PPMImage(width, height, maxValue, pixelArray);
+    PpmReader ppm = PpmReader.read(filename);
+    return new PPMImage(ppm.width, ppm.height, ppm.maxValue, ppm.pixels);
   }
 
 }
@@ -1,14 +1,27 @@
 package model;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
 import javax.imageio.ImageIO;
 
@@ -18,10 +31,12 @@ import javax.imageio.ImageIO;
  */
 public class ImageCreatorEnhanced extends ImageCreator {
 
+  private static final int BUFFER_SIZE = 1 << 16;
+
   /**
    * Writes the information of this image to the specified file, or creates a new file with the
    * given name if it's not existing, using toString to translate this PPMImage into a readable file
-   * format.
+   * format. The image is encoded straight into the file through a buffer of fixed size.
    *
    * @param model     the image we are writing to a file
    * @param file      name of file to write to
@@ -38,11 +53,14 @@ public class ImageCreatorEnhanced extends ImageCreator {
     if (!directory.equals("")) {
       directory += "/";
     }
-    try {
-      FileOutputStream fos = new FileOutputStream(directory + file);
-      fos.write(model.getBytes());
-      fos.close();
-    } catch (IOException e) {
+    try (FileChannel channel = FileChannel.open(Paths.get(directory + file),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel),
+          BUFFER_SIZE);
+      model.writeTo(output);
+      output.flush();
+    } catch (IOException | InvalidPathException e) {
       throw new IOException("Could not write image to the specified file");
     }
   }
@@ -119,9 +137,9 @@ public class ImageCreatorEnhanced extends ImageCreator {
     BufferedImage image = ImageIO.read(file);
     int width = image.getWidth();
     int height = image.getHeight();
-    IPixel[][] pixelArray = makePixelArray(width, height, image);
+    int[] pixels = makePixelArray(width, height, image);
 
-    return new PNGImage(width, height, 255, pixelArray);
+    return new PNGImage(width, height, 255, pixels);
   }
 
   /**
@@ -142,38 +160,95 @@ public class ImageCreatorEnhanced extends ImageCreator {
     BufferedImage image = ImageIO.read(file);
     int width = image.getWidth();
     int height = image.getHeight();
-    IPixel[][] pixelArray = makePixelArray(width, height, image);
+    int[] pixels = makePixelArray(width, height, image);
 
-    return new JPEGImage(width, height, 255, pixelArray);
+    return new JPEGImage(width, height, 255, pixels);
   }
 
   /**
-   * Helper method for readPNG and readJPEG. Reads the BufferedImage and returns a 2d array of
-   * pixels representing the image.
+   * Helper method for readPNG and readJPEG. Reads the BufferedImage and returns the packed color
+   * components of the pixels representing the image. Images of the layouts ImageIO reads most,
+   * packed ints (RGB or ARGB) and interleaved bytes (BGR from JPEG or ABGR from PNG), are read
+   * straight from the array behind their raster. Other images are read a row of RGB values at a
+   * time.
    *
    * @param width  width of image
    * @param height height of image
    * @param image  Buffered of image to read from
-   * @return 2d IPixel Array representing the image
+   * @return packed color components representing the image
    */
-  private static IPixel[][] makePixelArray(int width, int height, BufferedImage image) {
-    IPixel[][] pixelArray = new IPixel[height][width];
+  private static int[] makePixelArray(int width, int height, BufferedImage image) {
+    int[] pixels = new int[3 * width * height];
+    WritableRaster raster = image.getRaster();
+    int type = image.getType();
+    if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+        && isBackedByArray(raster, 1)) {
+      int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+      for (int p = 0; p < width * height; p++) {
+        unpackRGB(data[p], pixels, p * 3);
+      }
+      return pixels;
+    }
+    if ((type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR)
+        && isBackedByArray(raster, type == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4)) {
+      byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+      // blue, green and red are the last three bytes of every pixel, after alpha if there is one
+      int stride = type == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+      for (int p = 0, d = stride - 3; p < width * height; p++, d += stride) {
+        pixels[p * 3] = data[d + 2] & 0xff;
+        pixels[p * 3 + 1] = data[d + 1] & 0xff;
+        pixels[p * 3 + 2] = data[d] & 0xff;
+      }
+      return pixels;
+    }
 
+    int[] row = new int[width];
     for (int y = 0; y < height; y += 1) {
+      image.getRGB(0, y, width, 1, row, 0, width);
       for (int x = 0; x < width; x += 1) {
-        Color color = new Color(image.getRGB(x, y));
-        int red = color.getRed();
-        int green = color.getGreen();
-        int blue = color.getBlue();
-        pixelArray[y][x] = new Pixel(red, green, blue);
+        unpackRGB(row[x], pixels, (y * width + x) * 3);
       }
     }
-    return pixelArray;
+    return pixels;
+  }
+
+  // puts the red, green and blue components of the given RGB value at pixels[i]
+  private static void unpackRGB(int rgb, int[] pixels, int i) {
+    pixels[i] = (rgb >> 16) & 0xff;
+    pixels[i + 1] = (rgb >> 8) & 0xff;
+    pixels[i + 2] = rgb & 0xff;
+  }
+
+  /**
+   * Returns whether the given raster is a single array holding every pixel in a row after the
+   * other, with no gaps, starting at the first element of the array.
+   *
+   * @param raster      raster of a BufferedImage
+   * @param pixelStride number of array elements of every pixel
+   * @return true if pixel (x, y) starts at element (y * width + x) * pixelStride
+   */
+  static boolean isBackedByArray(Raster raster, int pixelStride) {
+    DataBuffer buffer = raster.getDataBuffer();
+    SampleModel model = raster.getSampleModel();
+    if (buffer.getNumBanks() != 1 || buffer.getOffset() != 0
+        || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+      return false;
+    }
+    if (model instanceof SinglePixelPackedSampleModel) {
+      return pixelStride == 1
+          && ((SinglePixelPackedSampleModel) model).getScanlineStride() == raster.getWidth();
+    }
+    if (model instanceof ComponentSampleModel) {
+      ComponentSampleModel components = (ComponentSampleModel) model;
+      return components.getPixelStride() == pixelStride
+          && components.getScanlineStride() == raster.getWidth() * pixelStride;
+    }
+    return false;
   }
 
   /**
    * Reads information from a text file and returns the contents of the text file as a String.
-   * Removes comments from the String starting with #.
+   * Removes comments from the String starting with #, and empty lines.
    *
    * @param filename name of text File to read
    * @return the String contents of the file.
@@ -193,9 +268,10 @@ public class ImageCreatorEnhanced extends ImageCreator {
     }
     StringBuilder builder = new StringBuilder();
     //read the file line by line, and populate a string. This will throw away any comment lines
+    //and blank lines
     while (sc.hasNextLine()) {
       String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
+      if (!s.isEmpty() && s.charAt(0) != '#') {
         builder.append(s + System.lineSeparator());
       }
     }
@@ -207,54 +283,14 @@ public class ImageCreatorEnhanced extends ImageCreator {
    *
    * @param filename name of ppm file to be read
    * @return PPMEnhanced object of given file information
-   * @throws IllegalArgumentException if file is null/ not found
+   * @throws IllegalArgumentException if file is null/ not found or not a PPM
    */
   public static IImageConverter readPPMEnhanced(String filename) throws IllegalArgumentException {
-    Scanner sc;
-
     if (filename == null) {
       throw new IllegalArgumentException("Null File Name");
     }
-
-    try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
-      throw new IllegalArgumentException("File Error: " + e);
-    }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
-      }
-    }
-
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-
-    String token;
-
-    token = sc.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Improper PPM File");
-    }
-    int width = sc.nextInt();
-
-    int height = sc.nextInt();
-
-    int maxValue = sc.nextInt();
-
-    Pixel[][] pixelArray = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        pixelArray[i][j] = new Pixel(r, g, b);
-      }
-    }
-    return new PPMImageEnhanced(width, height, maxValue, pixelArray);
+    PpmReader ppm = PpmReader.read(filename);
+    return new PPMImageEnhanced(ppm.width, ppm.height, ppm.maxValue, ppm.pixels);
   }
 
   /**
@@ -10,6 +10,55 @@ public interface ImageEditorEnhanced extends ImageEditor {
    * Apply a mosaic filter to this image.
    *
    * @param seeds No of seeds in this
+   * @throws IllegalArgumentException if seeds is not positive
    */
-  void mosaic(int seeds);
+  void mosaic(int seeds) throws IllegalArgumentException;
+
+  /**
+   * Apply a mosaic filter to this image, with seeds placed by a random number generator started
+   * from the given seed. The same seeds always give the same image.
+   *
+   * @param seeds   No of seeds in this
+   * @param rngSeed seed of the random number generator placing the seeds
+   * @throws IllegalArgumentException if seeds is not positive
+   */
+  void mosaic(int seeds, long rngSeed) throws IllegalArgumentException;
+
+  /**
+   * Apply a mosaic filter to this image like {@link #mosaic(int, long)}, finding the closest seed
+   * of every pixel with the given engine.
+   *
+   * @param seeds   No of seeds in this
+   * @param rngSeed seed of the random number generator placing the seeds
+   * @param engine  how to find the closest seed of every pixel
+   * @throws IllegalArgumentException if seeds is not positive or engine is null
+   */
+  void mosaic(int seeds, long rngSeed, MosaicEngine engine) throws IllegalArgumentException;
+
+  /**
+   * Blurs this image by averaging every pixel with the pixels within the given radius, three
+   * times over, which approximates a gaussian blur. Takes the same time for any radius.
+   *
+   * @param radius how many pixels away from each pixel to average over
+   * @throws IllegalArgumentException if radius is not positive
+   */
+  void blurImage(int radius) throws IllegalArgumentException;
+
+  /**
+   * Blurs this image with a gaussian kernel of the given standard deviation.
+   *
+   * @param sigma standard deviation of the gaussian in pixels
+   * @throws IllegalArgumentException if sigma is not positive
+   */
+  void gaussianBlur(double sigma) throws IllegalArgumentException;
+
+  /**
+   * Convolves this image with the given kernel. Parts of the kernel falling outside of the image
+   * contribute nothing.
+   *
+   * @param kernel square kernel of odd size, indexed by row then column
+   * @throws IllegalArgumentException if the kernel is null, not square, of even size or has
+   *                                  weights that are not finite
+   */
+  void convolve(double[][] kernel) throws IllegalArgumentException;
 }
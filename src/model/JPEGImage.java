@@ -1,9 +1,11 @@
 package model;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 /**
  * Class to represent an image in JPEG format and related methods to modify JPEG image.
@@ -24,21 +26,31 @@ public class JPEGImage extends AbstractImageEnhanced {
     super(width, height, maxColor, pixelArray);
   }
 
+  /**
+   * Constructs abstract Image from packed pixels.
+   *
+   * @param width    width of image
+   * @param height   height of image
+   * @param maxColor maxValue of color allowed for format
+   * @param pixels   packed color components representing the image
+   * @throws IllegalArgumentException if pixels is invalid
+   */
+  JPEGImage(int width, int height, int maxColor, int[] pixels) throws IllegalArgumentException {
+    super(width, height, maxColor, pixels);
+  }
+
   @Override
-  public byte[] getBytes() {
+  protected void encode(OutputStream output) throws IOException {
     BufferedImage image = getBufferedImage();
-    ByteArrayOutputStream bytesOutput = new ByteArrayOutputStream();
-    try {
-      ImageIO.write(image, "jpeg", bytesOutput);
-    } catch (IOException e) {
-      throw new IllegalStateException("Could not create JPEG");
+    try (ImageOutputStream imageOutput = new MemoryCacheImageOutputStream(output)) {
+      if (!ImageIO.write(image, "jpeg", imageOutput)) {
+        throw new IOException("Could not create JPEG");
+      }
     }
-    byte[] bytes = bytesOutput.toByteArray();
-    return bytes;
   }
 
   @Override
-  protected IImageConverter fromImage(int width, int height, int maxColor, IPixel[][] pixelArray) {
-    return new JPEGImage(width, height, maxColor, pixelArray);
+  protected IImageConverter fromImage(int width, int height, int maxColor, int[] pixels) {
+    return new JPEGImage(width, height, maxColor, pixels);
   }
 }
@@ -0,0 +1,291 @@
+package model;
+
+import java.util.List;
+
+/**
+ * A square, odd sized convolution kernel stored as a flattened array of weights. Applies itself to
+ * packed pixels using primitive accumulators. By default every tap is rounded before it is added,
+ * producing the same result as adding up {@code IPixel.multiply} for every tap and clamping the
+ * sum; kernels can also add up the exact products and round only once.
+ */
+final class Kernel implements Filter {
+
+  private final double[] weights;
+  private final int size;
+  private final boolean roundEachTap;
+
+  /**
+   * Constructs a kernel from the given rows of weights that rounds every tap.
+   *
+   * @param rows rows of the kernel
+   * @throws IllegalArgumentException if the kernel is not square or has even dimensions
+   */
+  Kernel(double[][] rows) throws IllegalArgumentException {
+    this(rows, true);
+  }
+
+  /**
+   * Constructs a kernel from the given rows of weights.
+   *
+   * @param rows         rows of the kernel
+   * @param roundEachTap whether to round every tap like {@code IPixel.multiply}, or only the sum
+   * @throws IllegalArgumentException if the kernel is not square or has even dimensions
+   */
+  Kernel(double[][] rows, boolean roundEachTap) throws IllegalArgumentException {
+    if (rows == null || rows.length % 2 == 0) {
+      throw new IllegalArgumentException("Invalid Kernel");
+    }
+    this.size = rows.length;
+    this.weights = new double[size * size];
+    for (int i = 0; i < size; i++) {
+      if (rows[i] == null || rows[i].length != size) {
+        throw new IllegalArgumentException("Invalid Kernel");
+      }
+      System.arraycopy(rows[i], 0, weights, i * size, size);
+    }
+    this.roundEachTap = roundEachTap;
+  }
+
+  /**
+   * Constructs a kernel from the given boxed rows of weights.
+   *
+   * @param rows rows of the kernel
+   * @throws IllegalArgumentException if the kernel is not square or has even dimensions
+   */
+  Kernel(List<List<Double>> rows) throws IllegalArgumentException {
+    this(unbox(rows));
+  }
+
+  /**
+   * Copies the given boxed rows of weights into arrays.
+   *
+   * @param rows rows of the kernel
+   * @return the rows as arrays
+   * @throws IllegalArgumentException if rows is null, empty or has a null row
+   */
+  static double[][] unbox(List<List<Double>> rows) throws IllegalArgumentException {
+    if (rows == null || rows.isEmpty()) {
+      throw new IllegalArgumentException("Invalid Kernel");
+    }
+    double[][] unboxed = new double[rows.size()][];
+    for (int i = 0; i < rows.size(); i++) {
+      List<Double> row = rows.get(i);
+      if (row == null) {
+        throw new IllegalArgumentException("Invalid Kernel");
+      }
+      unboxed[i] = new double[row.size()];
+      for (int j = 0; j < row.size(); j++) {
+        unboxed[i][j] = row.get(j);
+      }
+    }
+    return unboxed;
+  }
+
+  /**
+   * Convolves the source pixels with this kernel and writes the clamped result to dest. Taps that
+   * fall outside of the image contribute nothing. Rows are split into bands that run in parallel.
+   *
+   * @param src      packed pixels to read
+   * @param dest     packed pixels to write, must not be src
+   * @param width    width of the image
+   * @param height   height of the image
+   * @param maxColor max color value to clamp to
+   */
+  void apply(int[] src, int[] dest, int width, int height, int maxColor) {
+    apply(src, dest, width, height, maxColor, (rowStart, rowEnd) -> {
+    });
+  }
+
+  @Override
+  public void apply(int[] src, int[] dest, int width, int height, int maxColor,
+      RowBands.RowOperation then) {
+    RowBands.forEach(width, height, (rowStart, rowEnd) -> {
+      apply(src, dest, width, height, maxColor, rowStart, rowEnd);
+      then.apply(rowStart, rowEnd);
+    });
+  }
+
+  /**
+   * Convolves the rows [rowStart, rowEnd) of the source pixels with this kernel and writes the
+   * clamped result to the same rows of dest. Pixels whose taps all fall inside the image are
+   * handled by a loop without bounds checks, or by {@code PixelLoops} when it is available, only
+   * the frame of pixels within the kernel radius of an edge checks every tap.
+   *
+   * @param src      packed pixels to read
+   * @param dest     packed pixels to write, must not be src
+   * @param width    width of the image
+   * @param height   height of the image
+   * @param maxColor max color value to clamp to
+   * @param rowStart first row to write, inclusive
+   * @param rowEnd   last row to write, exclusive
+   */
+  void apply(int[] src, int[] dest, int width, int height, int maxColor, int rowStart,
+      int rowEnd) {
+    int radius = size / 2;
+    int leftEnd = Math.min(radius, width);
+    int rightStart = Math.max(leftEnd, width - radius);
+    PixelLoops loops = PixelLoops.get();
+    int[] offsets = loops == null ? null : tapOffsets(width);
+    for (int h = rowStart; h < rowEnd; h++) {
+      if (h < radius || h >= height - radius) {
+        for (int w = 0; w < width; w++) {
+          applyBorder(src, dest, width, height, maxColor, h, w);
+        }
+        continue;
+      }
+      for (int w = 0; w < leftEnd; w++) {
+        applyBorder(src, dest, width, height, maxColor, h, w);
+      }
+      int interiorStart = leftEnd;
+      if (loops != null && rightStart > leftEnd) {
+        interiorStart += loops.convolve(src, dest, (h * width + leftEnd) * 3,
+            rightStart - leftEnd, offsets, weights, roundEachTap, maxColor);
+      }
+      if (roundEachTap) {
+        for (int w = interiorStart; w < rightStart; w++) {
+          applyInterior(src, dest, width, maxColor, h, w);
+        }
+      } else {
+        for (int w = interiorStart; w < rightStart; w++) {
+          applyInteriorSummed(src, dest, width, maxColor, h, w);
+        }
+      }
+      for (int w = rightStart; w < width; w++) {
+        applyBorder(src, dest, width, height, maxColor, h, w);
+      }
+    }
+  }
+
+  // offset from a component to the component read by every tap, for an image of the given width
+  private int[] tapOffsets(int width) {
+    int radius = size / 2;
+    int[] offsets = new int[size * size];
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        offsets[i * size + j] = ((i - radius) * width + (j - radius)) * 3;
+      }
+    }
+    return offsets;
+  }
+
+  // convolves a pixel whose taps are all inside the image
+  private void applyInterior(int[] src, int[] dest, int width, int maxColor, int h, int w) {
+    int radius = size / 2;
+    int rowStride = width * 3;
+    int first = ((h - radius) * width + (w - radius)) * 3;
+    int red = 0;
+    int green = 0;
+    int blue = 0;
+    int tap = 0;
+    for (int i = 0; i < size; i++) {
+      int p = first + i * rowStride;
+      for (int j = 0; j < size; j++) {
+        double weight = weights[tap++];
+        red += (int) Math.round(src[p] * weight);
+        green += (int) Math.round(src[p + 1] * weight);
+        blue += (int) Math.round(src[p + 2] * weight);
+        p += 3;
+      }
+    }
+    int out = (h * width + w) * 3;
+    dest[out] = clamp(red, maxColor);
+    dest[out + 1] = clamp(green, maxColor);
+    dest[out + 2] = clamp(blue, maxColor);
+  }
+
+  // convolves a pixel whose taps are all inside the image, rounding only the sum
+  private void applyInteriorSummed(int[] src, int[] dest, int width, int maxColor, int h,
+      int w) {
+    int radius = size / 2;
+    int rowStride = width * 3;
+    int first = ((h - radius) * width + (w - radius)) * 3;
+    double red = 0;
+    double green = 0;
+    double blue = 0;
+    int tap = 0;
+    for (int i = 0; i < size; i++) {
+      int p = first + i * rowStride;
+      for (int j = 0; j < size; j++) {
+        double weight = weights[tap++];
+        red += src[p] * weight;
+        green += src[p + 1] * weight;
+        blue += src[p + 2] * weight;
+        p += 3;
+      }
+    }
+    int out = (h * width + w) * 3;
+    dest[out] = clamp(red, maxColor);
+    dest[out + 1] = clamp(green, maxColor);
+    dest[out + 2] = clamp(blue, maxColor);
+  }
+
+  // convolves a pixel near an edge, taps outside of the image contribute nothing
+  private void applyBorder(int[] src, int[] dest, int width, int height, int maxColor, int h,
+      int w) {
+    int radius = size / 2;
+    double red = 0;
+    double green = 0;
+    double blue = 0;
+    for (int i = 0; i < size; i++) {
+      int pixelPosH = h - radius + i;
+      if (pixelPosH < 0 || pixelPosH >= height) {
+        continue;
+      }
+      int rowOffset = pixelPosH * width;
+      int tap = i * size;
+      for (int j = 0; j < size; j++) {
+        int pixelPosW = w - radius + j;
+        if (pixelPosW < 0 || pixelPosW >= width) {
+          continue;
+        }
+        double weight = weights[tap + j];
+        int p = (rowOffset + pixelPosW) * 3;
+        if (roundEachTap) {
+          red += (int) Math.round(src[p] * weight);
+          green += (int) Math.round(src[p + 1] * weight);
+          blue += (int) Math.round(src[p + 2] * weight);
+        } else {
+          red += src[p] * weight;
+          green += src[p + 1] * weight;
+          blue += src[p + 2] * weight;
+        }
+      }
+    }
+    int out = (h * width + w) * 3;
+    dest[out] = clamp(red, maxColor);
+    dest[out + 1] = clamp(green, maxColor);
+    dest[out + 2] = clamp(blue, maxColor);
+  }
+
+  /**
+   * Clamps the given color component to the range [0, maxValue].
+   *
+   * @param value    color component
+   * @param maxValue max int value of a component
+   * @return the clamped component
+   */
+  static int clamp(int value, int maxValue) {
+    if (value > maxValue) {
+      return maxValue;
+    } else if (value < 0) {
+      return 0;
+    }
+    return value;
+  }
+
+  /**
+   * Rounds the given color component and clamps it to the range [0, maxValue].
+   *
+   * @param value    color component
+   * @param maxValue max int value of a component
+   * @return the rounded and clamped component
+   */
+  static int clamp(double value, int maxValue) {
+    if (value >= maxValue) {
+      return maxValue;
+    } else if (value <= 0) {
+      return 0;
+    }
+    return (int) Math.round(value);
+  }
+}
@@ -1,8 +1,11 @@
 package model;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Class to represent a photoshop-esque model. Contains layers of images that can be separately
@@ -18,6 +21,10 @@ public class LayeredImages implements ImageModel {
 
   private IImageConverter imageDimension;
 
+  private boolean deferred;
+  private ColorComposition colorComposition;
+  private final VersionCache<BufferedImage> checkerBoard = new VersionCache<>();
+
   /**
    * Constructor for a LayeredImage model. Starts with no layers, index starting at -1.
    */
@@ -25,6 +32,8 @@ public class LayeredImages implements ImageModel {
     this.layers = new ArrayList<>();
     this.visibility = new ArrayList<>();
     this.currentIndex = -1;
+    this.deferred = false;
+    this.colorComposition = ColorComposition.EXACT;
   }
 
   @Override
@@ -75,6 +84,8 @@ public class LayeredImages implements ImageModel {
     } else if (!imageDimension.compareDimensions(image) && layers.size() > 1) {
       throw new IllegalStateException("Image dimensions don't match");
     }
+    image.setDeferred(deferred);
+    image.setColorComposition(colorComposition);
     layers.set(currentIndex, image);
     visibility.set(currentIndex, true);
     current = layers.get(currentIndex);
@@ -128,6 +139,8 @@ public class LayeredImages implements ImageModel {
       throw new IllegalArgumentException("Invalid index");
     }
     IImageConverter image = layers.get(index).copy();
+    image.setDeferred(deferred);
+    image.setColorComposition(colorComposition);
     layers.set(currentIndex, image);
 
     visibility.set(currentIndex, visibility.get(index));
@@ -162,11 +175,45 @@ public class LayeredImages implements ImageModel {
     return current.toPNG();
   }
 
+  @Override
+  public IImageConverter toBinaryPPM() throws IllegalArgumentException {
+    return current.toBinaryPPM();
+  }
+
   @Override
   public byte[] getBytes() {
     return current.getBytes();
   }
 
+  @Override
+  public void writeTo(OutputStream output) throws IOException, IllegalArgumentException {
+    current.writeTo(output);
+  }
+
+  @Override
+  public void setDeferred(boolean deferred) {
+    this.deferred = deferred;
+    for (IImageConverter layer : layers) {
+      if (layer != null) {
+        layer.setDeferred(deferred);
+      }
+    }
+  }
+
+  @Override
+  public void setColorComposition(ColorComposition composition)
+      throws IllegalArgumentException {
+    if (composition == null) {
+      throw new IllegalArgumentException("Null Input");
+    }
+    this.colorComposition = composition;
+    for (IImageConverter layer : layers) {
+      if (layer != null) {
+        layer.setColorComposition(composition);
+      }
+    }
+  }
+
   @Override
   public boolean compareDimensions(IImageConverter that) {
     return current.compareDimensions(that);
@@ -177,11 +224,32 @@ public class LayeredImages implements ImageModel {
     return current.copy();
   }
 
+  @Override
+  public void mosaics(int[] seeds, long rngSeed, MosaicEngine engine,
+      Consumer<IImageConverter> each) throws IllegalArgumentException {
+    current.mosaics(seeds, rngSeed, engine, each);
+  }
+
   @Override
   public void blurImage() {
     current.blurImage();
   }
 
+  @Override
+  public void blurImage(int radius) throws IllegalArgumentException {
+    current.blurImage(radius);
+  }
+
+  @Override
+  public void gaussianBlur(double sigma) throws IllegalArgumentException {
+    current.gaussianBlur(sigma);
+  }
+
+  @Override
+  public void convolve(double[][] kernel) throws IllegalArgumentException {
+    current.convolve(kernel);
+  }
+
   @Override
   public void sharpenImage() {
     current.sharpenImage();
@@ -206,10 +274,15 @@ public class LayeredImages implements ImageModel {
       }
     }
 
-    //default return
-    return ImageCreatorEnhanced.createJPEG(ImageCreatorEnhanced.
-        createCheckerBoard(5, 500, 750, new Pixel(0, 0, 0),
-            new Pixel(255, 255, 255))).getBufferedImage();
+    //default return, the same checkerboard every time so it is only made again if it was dropped
+    BufferedImage image = checkerBoard.get(0);
+    if (image == null) {
+      image = ImageCreatorEnhanced.createJPEG(ImageCreatorEnhanced.
+          createCheckerBoard(5, 500, 750, new Pixel(0, 0, 0),
+              new Pixel(255, 255, 255))).getBufferedImage();
+      checkerBoard.put(0, image);
+    }
+    return image;
 
   }
 
@@ -217,4 +290,14 @@ public class LayeredImages implements ImageModel {
   public void mosaic(int seeds) {
     current.mosaic(seeds);
   }
+
+  @Override
+  public void mosaic(int seeds, long rngSeed) {
+    current.mosaic(seeds, rngSeed);
+  }
+
+  @Override
+  public void mosaic(int seeds, long rngSeed, MosaicEngine engine) {
+    current.mosaic(seeds, rngSeed, engine);
+  }
 }
@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * How a mosaic finds the closest seed of every pixel. Both give the same image.
+ */
+public enum MosaicEngine {
+
+  /**
+   * Every pixel looks up its closest seed in a grid of buckets over the seeds.
+   */
+  NEAREST_SEED,
+
+  /**
+   * Distances to the seeds are swept over the whole image, a column at a time and then a row at a
+   * time, taking the same time for any number of seeds.
+   */
+  SWEEP
+}
@@ -1,9 +1,11 @@
 package model;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 /**
  * Class to represent a Image in PNG format and related methods to modify PNG image.
@@ -24,21 +26,33 @@ public class PNGImage extends AbstractImageEnhanced {
     super(width, height, maxColor, pixelArray);
   }
 
+  /**
+   * Constructs abstract Image from packed pixels.
+   *
+   * @param width    width of image
+   * @param height   height of image
+   * @param maxColor maxValue of color allowed for format
+   * @param pixels   packed color components representing the image
+   * @throws IllegalArgumentException if pixels is invalid
+   */
+  PNGImage(int width, int height, int maxColor, int[] pixels) throws IllegalArgumentException {
+    super(width, height, maxColor, pixels);
+  }
+
+  // encodes through a stream that only keeps in memory what the writer may still go back to,
+  // rather than a temporary file
   @Override
-  public byte[] getBytes() {
+  protected void encode(OutputStream output) throws IOException {
     BufferedImage image = getBufferedImage();
-    ByteArrayOutputStream bytesOutput = new ByteArrayOutputStream();
-    try {
-      ImageIO.write(image, "png", bytesOutput);
-    } catch (IOException e) {
-      throw new IllegalStateException("Could not create PNG");
+    try (ImageOutputStream imageOutput = new MemoryCacheImageOutputStream(output)) {
+      if (!ImageIO.write(image, "png", imageOutput)) {
+        throw new IOException("Could not create PNG");
+      }
     }
-    byte[] bytes = bytesOutput.toByteArray();
-    return bytes;
   }
 
   @Override
-  protected IImageConverter fromImage(int width, int height, int maxColor, IPixel[][] pixelArray) {
-    return new PNGImage(width, height, maxColor, pixelArray);
+  protected IImageConverter fromImage(int width, int height, int maxColor, int[] pixels) {
+    return new PNGImage(width, height, maxColor, pixels);
   }
 }
@@ -0,0 +1,113 @@
+package model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class to represent an Image in binary PPM (P6) format. Every color component is written as one
+ * byte if the max color is below 256 and as two bytes, most significant first, otherwise, so the
+ * max color must be in [1, 65535]. Color components outside of [0, max color] are clamped to it
+ * since they cannot be written in binary.
+ */
+public class PPMBinaryImage extends AbstractImageEnhanced {
+
+  private static final int MAX_BINARY_VALUE = 65535;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Constructs abstract Image.
+   *
+   * @param width      width of image
+   * @param height     height of image
+   * @param maxColor   maxValue of color allowed for format
+   * @param pixelArray array of pixels representing the image
+   * @throws IllegalArgumentException if pixelArray is invalid or maxColor cannot be written
+   */
+  public PPMBinaryImage(int width, int height, int maxColor, IPixel[][] pixelArray)
+      throws IllegalArgumentException {
+    super(width, height, maxColor, pixelArray);
+    checkMaxColor(maxColor);
+  }
+
+  /**
+   * Constructs abstract Image from packed pixels.
+   *
+   * @param width    width of image
+   * @param height   height of image
+   * @param maxColor maxValue of color allowed for format
+   * @param pixels   packed color components representing the image
+   * @throws IllegalArgumentException if pixels is invalid or maxColor cannot be written
+   */
+  PPMBinaryImage(int width, int height, int maxColor, int[] pixels)
+      throws IllegalArgumentException {
+    super(width, height, maxColor, pixels);
+    checkMaxColor(maxColor);
+  }
+
+  /**
+   * Checks that images of the given max color can be written in binary.
+   *
+   * @param maxColor max color of an image
+   * @throws IllegalArgumentException if maxColor is not in [1, 65535]
+   */
+  static void checkMaxColor(int maxColor) throws IllegalArgumentException {
+    if (maxColor <= 0 || maxColor > MAX_BINARY_VALUE) {
+      throw new IllegalArgumentException("Invalid max color for binary PPM");
+    }
+  }
+
+  @Override
+  protected byte[] encode() {
+    byte[] header = header();
+    byte[] bytes = new byte[header.length + pixels.length * bytesPerSample()];
+    System.arraycopy(header, 0, bytes, 0, header.length);
+    encode(ByteBuffer.wrap(bytes, header.length, bytes.length - header.length), 0,
+        pixels.length);
+    return bytes;
+  }
+
+  // encodes a buffer of samples at a time
+  @Override
+  protected void encode(OutputStream output) throws IOException {
+    output.write(header());
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    for (int start = 0; start < pixels.length; ) {
+      int end = (int) Math.min(pixels.length, (long) start + BUFFER_SIZE / bytesPerSample());
+      encode(buffer, start, end);
+      output.write(buffer.array(), 0, buffer.position());
+      buffer.clear();
+      start = end;
+    }
+  }
+
+  // the header of the file, after evaluating the pixels to write after it
+  private byte[] header() {
+    evaluate();
+    return ("P6\n" + width + " " + height + "\n" + maxColor + "\n")
+        .getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private int bytesPerSample() {
+    return maxColor < 256 ? 1 : 2;
+  }
+
+  // puts the color components in [start, end) into the buffer
+  private void encode(ByteBuffer buffer, int start, int end) {
+    if (bytesPerSample() == 1) {
+      for (int i = start; i < end; i++) {
+        buffer.put((byte) Math.max(0, Math.min(maxColor, pixels[i])));
+      }
+    } else {
+      for (int i = start; i < end; i++) {
+        buffer.putShort((short) Math.max(0, Math.min(maxColor, pixels[i])));
+      }
+    }
+  }
+
+  @Override
+  protected IImageConverter fromImage(int width, int height, int maxColor, int[] pixels) {
+    return new PPMBinaryImage(width, height, maxColor, pixels);
+  }
+}
@@ -17,6 +17,18 @@ public class PPMImage extends AbstractImage {
     super(width, height, maxColor, pixelArray);
   }
 
+  /**
+   * Constructs a PPM Image from packed pixels.
+   *
+   * @param width    width of ppm image
+   * @param height   height of ppm image
+   * @param maxColor max int color value of this ppm file
+   * @param pixels   packed color components of ppm image
+   */
+  PPMImage(int width, int height, int maxColor, int[] pixels) {
+    super(width, height, maxColor, pixels);
+  }
+
   /**
    * Returns this ppm Image in a way that can be written to a ppm file.
    *
@@ -24,13 +36,16 @@ public class PPMImage extends AbstractImage {
    */
   @Override
   public String toString() {
+    evaluate();
     StringBuilder ppmFormat = new StringBuilder();
     ppmFormat.append("P3\n" + width + "\n" + height + "\n" + maxColor + "\n");
 
-    for (IPixel[] row : this.pixelArray) {
+    int i = 0;
+    for (int h = 0; h < height; h++) {
       StringBuilder rowString = new StringBuilder();
-      for (IPixel color : row) {
-        rowString.append(color.toString() + " ");
+      for (int w = 0; w < width; w++) {
+        rowString.append(pixels[i] + " " + pixels[i + 1] + " " + pixels[i + 2] + " ");
+        i += 3;
       }
       rowString.append("\n");
       ppmFormat.append(rowString);
@@ -1,11 +1,18 @@
 package model;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Enhanced version of PPMImage class. Includes all methods of PPMImage
  * as well as IImageConverter methods.
  */
 public class PPMImageEnhanced extends AbstractImageEnhanced {
-  private final ImageEditor delegator;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  // three numbers of at most 11 characters each, each followed by a space
+  private static final int MAX_PIXEL_BYTES = 36;
 
   /**
    * Constructs abstract Image. Uses delegation when possible.
@@ -19,22 +26,107 @@ public class PPMImageEnhanced extends AbstractImageEnhanced {
   public PPMImageEnhanced(int width, int height, int maxColor, IPixel[][] pixelArray)
       throws IllegalArgumentException {
     super(width, height, maxColor, pixelArray);
-    this.delegator = new PPMImage(width, height, maxColor, pixelArray);
+  }
+
+  /**
+   * Constructs abstract Image from packed pixels. Uses delegation when possible.
+   *
+   * @param width    width of image
+   * @param height   height of image
+   * @param maxColor maxValue of color allowed for format
+   * @param pixels   packed color components representing the image
+   * @throws IllegalArgumentException if pixels is invalid
+   */
+  PPMImageEnhanced(int width, int height, int maxColor, int[] pixels)
+      throws IllegalArgumentException {
+    super(width, height, maxColor, pixels);
   }
 
 
+  // delegates to a PPMImage over the current pixels, they move between buffers as it is edited
   @Override
   public String toString() {
-    return delegator.toString();
+    evaluate();
+    return new PPMImage(width, height, maxColor, pixels).toString();
   }
 
+  /**
+   * Writes the same text as {@link #toString()} to the given stream, formatting the numbers
+   * straight into a buffer that is written whenever it fills up.
+   *
+   * @param output where to write this image
+   * @throws IOException if the stream cannot be written to
+   */
   @Override
-  public byte[] getBytes() {
-    return toString().getBytes();
+  protected void encode(OutputStream output) throws IOException {
+    evaluate();
+    byte[] bytes = new byte[BUFFER_SIZE];
+    int n = 0;
+    bytes[n++] = 'P';
+    bytes[n++] = '3';
+    bytes[n++] = '\n';
+    n = putInt(bytes, n, width);
+    bytes[n++] = '\n';
+    n = putInt(bytes, n, height);
+    bytes[n++] = '\n';
+    n = putInt(bytes, n, maxColor);
+    bytes[n++] = '\n';
+
+    int i = 0;
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        if (n > BUFFER_SIZE - MAX_PIXEL_BYTES) {
+          output.write(bytes, 0, n);
+          n = 0;
+        }
+        n = putInt(bytes, n, pixels[i]);
+        bytes[n++] = ' ';
+        n = putInt(bytes, n, pixels[i + 1]);
+        bytes[n++] = ' ';
+        n = putInt(bytes, n, pixels[i + 2]);
+        bytes[n++] = ' ';
+        i += 3;
+      }
+      if (n == BUFFER_SIZE) {
+        output.write(bytes, 0, n);
+        n = 0;
+      }
+      bytes[n++] = '\n';
+    }
+    output.write(bytes, 0, n);
+  }
+
+  // puts the decimal digits of value at bytes[n] and returns the index after them
+  private static int putInt(byte[] bytes, int n, int value) {
+    if (value < 0) {
+      if (value == Integer.MIN_VALUE) {
+        byte[] min = Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(min, 0, bytes, n, min.length);
+        return n + min.length;
+      }
+      bytes[n++] = '-';
+      value = -value;
+    }
+    int end = n + digits(value);
+    for (int k = end - 1; k > n; k--) {
+      bytes[k] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    bytes[n] = (byte) ('0' + value);
+    return end;
+  }
+
+  // number of decimal digits of a value that is not negative
+  private static int digits(int value) {
+    int digits = 1;
+    for (int limit = 10; digits < 10 && value >= limit; limit *= 10) {
+      digits++;
+    }
+    return digits;
   }
 
   @Override
-  protected IImageConverter fromImage(int width, int height, int maxColor, IPixel[][] pixelArray) {
-    return new PPMImageEnhanced(width, height, maxColor, pixelArray);
+  protected IImageConverter fromImage(int width, int height, int maxColor, int[] pixels) {
+    return new PPMImageEnhanced(width, height, maxColor, pixels);
   }
 }
@@ -0,0 +1,116 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The operations recorded on an image that have not been applied to its pixels yet. Operations
+ * are grouped into passes over the image: a pass starts with at most one spatial filter and is
+ * followed by every color transformation recorded after it, which are applied to each band of
+ * rows as soon as the filter has finished it. Color transformations with no filter before them
+ * are fused into a single pass done in place. Consecutive color transformations can also be
+ * multiplied into a single matrix, see {@code ColorComposition}.
+ */
+final class Pipeline {
+
+  private final List<Pass> passes;
+
+  /**
+   * Constructs an empty pipeline.
+   */
+  Pipeline() {
+    this.passes = new ArrayList<>();
+  }
+
+  /**
+   * Records a spatial filter, starting a new pass.
+   *
+   * @param filter filter to apply
+   */
+  void add(Filter filter) {
+    passes.add(new Pass(filter));
+  }
+
+  /**
+   * Records a color transformation, fusing it into the last pass.
+   *
+   * @param colorMatrix matrix of the color transformation
+   * @param composition whether to keep it separate from or multiply it into the color
+   *                    transformation recorded right before it
+   */
+  void add(ColorMatrix colorMatrix, ColorComposition composition) {
+    if (passes.isEmpty()) {
+      passes.add(new Pass(null));
+    }
+    List<ColorMatrix> colors = passes.get(passes.size() - 1).colors;
+    if (composition == ColorComposition.FAST && !colors.isEmpty()) {
+      int last = colors.size() - 1;
+      colors.set(last, colors.get(last).then(colorMatrix));
+    } else {
+      colors.add(colorMatrix);
+    }
+  }
+
+  /**
+   * Returns whether there are no recorded operations.
+   *
+   * @return true if there is nothing to apply
+   */
+  boolean isEmpty() {
+    return passes.isEmpty();
+  }
+
+  /**
+   * Applies every recorded operation and clears the pipeline. The pixels start in buffers[0];
+   * every spatial filter writes into buffers[1] and swaps the two, so that buffers[0] always holds
+   * the latest pixels. buffers[1] may be null, in which case it is allocated when first needed.
+   * A filter never writes into the given shared array, which another image is still reading, even
+   * once it has been swapped into buffers[1]; a new back buffer is allocated instead.
+   *
+   * @param buffers  the front buffer holding the pixels and the back buffer to write into
+   * @param width    width of the image
+   * @param height   height of the image
+   * @param maxColor max color value to clamp to
+   * @param shared   the pixel array shared with another image, null if there is none
+   */
+  void run(int[][] buffers, int width, int height, int maxColor, int[] shared) {
+    for (Pass pass : passes) {
+      int[] spare = buffers[1] == shared ? null : buffers[1];
+      int[] result = pass.run(buffers[0], spare, width, height, maxColor);
+      if (result != buffers[0]) {
+        buffers[1] = buffers[0];
+        buffers[0] = result;
+      }
+    }
+    passes.clear();
+  }
+
+  /**
+   * A single pass over the image: an optional spatial filter followed by color transformations.
+   */
+  private static final class Pass {
+
+    private final Filter filter;
+    private final List<ColorMatrix> colors;
+
+    Pass(Filter filter) {
+      this.filter = filter;
+      this.colors = new ArrayList<>();
+    }
+
+    // returns src if the pass was done in place, the buffer written to otherwise
+    int[] run(int[] src, int[] spare, int width, int height, int maxColor) {
+      ColorMatrix[] chain = colors.toArray(new ColorMatrix[0]);
+      if (filter == null) {
+        RowBands.forEach(width, height, (rowStart, rowEnd) -> ColorMatrix.applyAll(chain, src,
+            src, maxColor, rowStart * width * 3, rowEnd * width * 3));
+        return src;
+      }
+      int[] dest = spare == null || spare.length != src.length ? new int[src.length] : spare;
+      filter.apply(src, dest, width, height, maxColor, (rowStart, rowEnd) ->
+          ColorMatrix.applyAll(chain, dest, dest, maxColor, rowStart * width * 3,
+              rowEnd * width * 3));
+      return dest;
+    }
+  }
+}
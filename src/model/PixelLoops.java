@@ -0,0 +1,101 @@
+package model;
+
+/**
+ * Inner loops of convolutions and color transformations that have a SIMD implementation. The
+ * implementation uses the incubating Vector API and lives in the separate {@code vector} source
+ * root, so that the rest of the program compiles without the {@code jdk.incubator.vector}
+ * module. It is only used when it was compiled, the program runs with
+ * {@code --add-modules jdk.incubator.vector} and the {@code photoshop.vector} system property is
+ * not false. Otherwise {@link #get()} returns null and callers use their own scalar loops.
+ *
+ * <p>Every loop handles some number of pixels from the start of its range and returns that
+ * number, the caller finishes the remaining pixels with its scalar loop. The pixels handled are
+ * written exactly as the scalar loop would write them.</p>
+ */
+abstract class PixelLoops {
+
+  // the SIMD loops, whether or not they are useful, or null if they are not available
+  private static final PixelLoops LOOPS = load();
+
+  private static volatile boolean enabled = LOOPS != null && LOOPS.isUseful()
+      && Boolean.parseBoolean(System.getProperty("photoshop.vector", "true"));
+
+  /**
+   * Returns the SIMD loops, or null if they are not available or not in use.
+   *
+   * @return the loops, or null to use scalar loops
+   */
+  static PixelLoops get() {
+    return enabled ? LOOPS : null;
+  }
+
+  /**
+   * Returns whether the SIMD loops were compiled and the vector module is available.
+   *
+   * @return whether the loops can be used
+   */
+  static boolean isAvailable() {
+    return LOOPS != null;
+  }
+
+  /**
+   * Turns the SIMD loops on or off, even if they are not faster on this machine. Has no effect
+   * if they are not available.
+   *
+   * @param enabled whether to use the loops
+   */
+  static void setEnabled(boolean enabled) {
+    PixelLoops.enabled = enabled && LOOPS != null;
+  }
+
+  private static PixelLoops load() {
+    try {
+      return (PixelLoops) Class.forName("model.VectorPixelLoops").getDeclaredConstructor()
+          .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // the loops were not compiled or the vector module was not added to the running program
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether these loops are faster than the scalar loops on this machine.
+   *
+   * @return false if vectors hold too few lanes to be worth using
+   */
+  abstract boolean isUseful();
+
+  /**
+   * Convolves the packed components in [start, start + pixels * 3) of src, every one of which must
+   * have all of its taps inside the image. Component k is the sum over every tap t of
+   * {@code src[k + offsets[t]] * weights[t]}, either rounding every product like
+   * {@code (int) Math.round} or only the sum, clamped like {@code Kernel.clamp}.
+   *
+   * @param src          packed pixels to read
+   * @param dest         packed pixels to write, must not be src
+   * @param start        index of the first component to write
+   * @param pixels       number of pixels to write
+   * @param offsets      offset from a component to the component read by every tap
+   * @param weights      weight of every tap
+   * @param roundEachTap whether to round every product or only the sum
+   * @param maxColor     max color value to clamp to
+   * @return the number of pixels written from start
+   */
+  abstract int convolve(int[] src, int[] dest, int start, int pixels, int[] offsets,
+      double[] weights, boolean roundEachTap, int maxColor);
+
+  /**
+   * Transforms the colors of the packed pixels starting at component index start by every matrix
+   * in order, like {@code ColorMatrix.applyAll}.
+   *
+   * @param matrices every 3x3 matrix of the chain, row by row
+   * @param src      packed pixels to read
+   * @param dest     packed pixels to write, may be src
+   * @param start    index of the first component to transform
+   * @param pixels   number of pixels to transform
+   * @param maxColor max color value to clamp to
+   * @return the number of pixels written from start
+   */
+  abstract int transformColors(double[][] matrices, int[] src, int[] dest, int start, int pixels,
+      int maxColor);
+}
@@ -0,0 +1,184 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+
+/**
+ * Reads plain (P3) and binary (P6) PPM files. The header, and the whole of a plain file, is read
+ * through a fixed size buffer and tokenized byte by byte: whitespace and comments, from a
+ * {@code #} to the end of its line, are skipped wherever they are, and every number is parsed
+ * straight from the bytes into the packed pixels of the image. The samples of a binary file, one
+ * byte each if the max value is below 256 and two bytes most significant first otherwise, are
+ * read from a memory mapping of the file. Reading takes the memory of the pixels and of the
+ * buffer, no matter how big the file is.
+ */
+final class PpmReader {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_BINARY_VALUE = 65535;
+
+  final int width;
+  final int height;
+  final int maxValue;
+  // red, green and blue components of every pixel, row by row
+  final int[] pixels;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] bytes;
+  // next byte of the buffer to read, and the end of the bytes read into the buffer
+  private int position;
+  private int limit;
+  // number of bytes of the file read into the buffer so far
+  private long read;
+
+  private PpmReader(FileChannel channel) throws IOException, IllegalArgumentException {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.bytes = buffer.array();
+    this.position = 0;
+    this.limit = 0;
+    this.read = 0;
+
+    int magic = next() == 'P' ? next() : -1;
+    if ((magic != '3' && magic != '6') || !endsToken(next())) {
+      throw new IllegalArgumentException("Improper PPM File");
+    }
+    this.width = nextInt();
+    this.height = nextInt();
+    this.maxValue = nextInt();
+    if (width < 0 || height < 0 || 3L * width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Improper PPM File");
+    }
+    this.pixels = new int[3 * width * height];
+    if (magic == '3') {
+      for (int i = 0; i < pixels.length; i++) {
+        pixels[i] = nextInt();
+      }
+    } else {
+      readSamples();
+    }
+  }
+
+  /**
+   * Reads the plain or binary PPM file with the given name.
+   *
+   * @param filename path of the file
+   * @return the size, max value and pixels of the image in the file
+   * @throws IllegalArgumentException if the file is missing, cannot be read or is not a PPM
+   */
+  static PpmReader read(String filename) throws IllegalArgumentException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename))) {
+      return new PpmReader(channel);
+    } catch (NoSuchFileException | InvalidPathException e) {
+      throw new IllegalArgumentException("File Error: " + e);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not read file: " + e.getMessage());
+    }
+  }
+
+  // reads the samples of a binary file, which start right after the single whitespace byte
+  // following the max value
+  private void readSamples() throws IOException, IllegalArgumentException {
+    int bytesPerSample = maxValue < 256 ? 1 : 2;
+    long start = read - limit + position;
+    long size = (long) pixels.length * bytesPerSample;
+    if (maxValue <= 0 || maxValue > MAX_BINARY_VALUE || position == 0
+        || !isWhitespace(bytes[position - 1]) || start + size > channel.size()) {
+      throw new IllegalArgumentException("Improper PPM File");
+    }
+    if (size == 0) {
+      return;
+    }
+    MappedByteBuffer samples = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    // absolute reads leave the buffer unchanged, so bands of rows can read it at once
+    RowBands.forEach(width, height, (rowStart, rowEnd) -> {
+      int end = rowEnd * width * 3;
+      if (bytesPerSample == 1) {
+        for (int i = rowStart * width * 3; i < end; i++) {
+          pixels[i] = samples.get(i) & 0xff;
+        }
+      } else {
+        for (int i = rowStart * width * 3; i < end; i++) {
+          pixels[i] = samples.getShort(i * 2) & 0xffff;
+        }
+      }
+    });
+  }
+
+  // parses the next decimal integer, with an optional sign, after any whitespace and comments
+  private int nextInt() throws IOException, IllegalArgumentException {
+    int b = skipWhitespace();
+    boolean negative = b == '-';
+    if (b == '-' || b == '+') {
+      b = next();
+    }
+    if (b < '0' || b > '9') {
+      throw new IllegalArgumentException("Improper PPM File");
+    }
+    long value = 0;
+    do {
+      value = value * 10 + (b - '0');
+      if (value > Integer.MAX_VALUE + 1L) {
+        throw new IllegalArgumentException("Improper PPM File");
+      }
+      b = next();
+    } while (b >= '0' && b <= '9');
+    if (!endsToken(b) || (!negative && value > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("Improper PPM File");
+    }
+    if (b == '#') {
+      // leave the comment to be skipped before the next token
+      position--;
+    }
+    return (int) (negative ? -value : value);
+  }
+
+  // skips whitespace and comments and returns the first byte after them, -1 at the end of file
+  private int skipWhitespace() throws IOException {
+    int b = next();
+    while (true) {
+      if (b == '#') {
+        do {
+          b = next();
+        } while (b != '\n' && b != '\r' && b >= 0);
+      } else if (!isWhitespace(b)) {
+        return b;
+      }
+      b = next();
+    }
+  }
+
+  // returns the next byte of the file, -1 at the end of file
+  private int next() throws IOException {
+    if (position == limit) {
+      buffer.clear();
+      int count = channel.read(buffer);
+      while (count == 0) {
+        count = channel.read(buffer);
+      }
+      if (count < 0) {
+        position = 0;
+        limit = 0;
+        return -1;
+      }
+      position = 0;
+      limit = count;
+      read += count;
+    }
+    return bytes[position++] & 0xff;
+  }
+
+  private static boolean endsToken(int b) {
+    return b < 0 || b == '#' || isWhitespace(b);
+  }
+
+  private static boolean isWhitespace(int b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0b;
+  }
+}
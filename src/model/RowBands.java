@@ -0,0 +1,113 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits per row image operations into bands of rows and runs them on a shared fork-join pool.
+ * Every row is written by exactly one band, so results are identical to running the rows in
+ * order. The number of threads defaults to the number of processors and can be changed with the
+ * {@code photoshop.parallelism} system property; a parallelism of 1 runs everything on the
+ * calling thread.
+ */
+final class RowBands {
+
+  // bands smaller than this many pixels are not worth splitting further
+  private static final int MIN_BAND_PIXELS = 1 << 14;
+
+  // null when running everything on the calling thread
+  private static final ForkJoinPool POOL = createPool(Integer.getInteger("photoshop.parallelism",
+      Runtime.getRuntime().availableProcessors()));
+
+  /**
+   * An operation over a band of rows of an image.
+   */
+  interface RowOperation {
+
+    /**
+     * Applies this operation to every row in [rowStart, rowEnd).
+     *
+     * @param rowStart first row, inclusive
+     * @param rowEnd   last row, exclusive
+     */
+    void apply(int rowStart, int rowEnd);
+  }
+
+  private RowBands() {
+  }
+
+  /**
+   * Returns the number of threads used for row operations.
+   *
+   * @return the parallelism
+   */
+  static int getParallelism() {
+    return POOL == null ? 1 : POOL.getParallelism();
+  }
+
+  private static ForkJoinPool createPool(int parallelism) {
+    return parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+  }
+
+  /**
+   * Runs the operation over all rows of an image of the given size, splitting the rows into bands
+   * when there is enough work to share.
+   *
+   * @param width     width of the image
+   * @param height    height of the image
+   * @param operation operation to run on each band
+   */
+  static void forEach(int width, int height, RowOperation operation) {
+    forEach(width, height, 1, operation);
+  }
+
+  /**
+   * Runs the operation over all rows of an image of the given size, splitting the rows into bands
+   * of at least the given number of rows when there is enough work to share. Useful when every
+   * band has a setup cost proportional to some number of rows.
+   *
+   * @param width     width of the image
+   * @param height    height of the image
+   * @param bandRows  smallest number of rows in a band
+   * @param operation operation to run on each band
+   */
+  static void forEach(int width, int height, int bandRows, RowOperation operation) {
+    int minRows = Math.max(bandRows, MIN_BAND_PIXELS / Math.max(1, width));
+    if (POOL == null || height <= minRows) {
+      operation.apply(0, height);
+      return;
+    }
+    POOL.invoke(new Band(operation, 0, height, minRows));
+  }
+
+  /**
+   * A band of rows that splits itself in half until it is small enough to run directly.
+   */
+  private static final class Band extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RowOperation operation;
+    private final int rowStart;
+    private final int rowEnd;
+    private final int minRows;
+
+    Band(RowOperation operation, int rowStart, int rowEnd, int minRows) {
+      this.operation = operation;
+      this.rowStart = rowStart;
+      this.rowEnd = rowEnd;
+      this.minRows = minRows;
+    }
+
+    @Override
+    protected void compute() {
+      if (rowEnd - rowStart <= minRows) {
+        operation.apply(rowStart, rowEnd);
+        return;
+      }
+      int middle = (rowStart + rowEnd) >>> 1;
+      invokeAll(new Band(operation, rowStart, middle, minRows),
+          new Band(operation, middle, rowEnd, minRows));
+    }
+  }
+}
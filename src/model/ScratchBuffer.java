@@ -0,0 +1,51 @@
+package model;
+
+import java.lang.ref.SoftReference;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * An array kept by every thread for a filter to reuse, so that filtering images of the same size
+ * again does not allocate. The array is only replaced when a larger one is needed, so it may be
+ * longer than asked for and holds whatever the last user left in it. It is only softly
+ * referenced, so the garbage collector drops it before running out of memory and it is then
+ * allocated again when next needed. A thread must be done with the array before asking the same
+ * buffer for it again.
+ *
+ * @param <T> type of the array
+ */
+final class ScratchBuffer<T> {
+
+  private final IntFunction<T> allocate;
+  private final ToIntFunction<T> length;
+  private final ThreadLocal<SoftReference<T>> arrays;
+
+  /**
+   * Constructs a buffer of arrays made by the given function.
+   *
+   * @param allocate makes an array of the given length
+   * @param length   returns the length of an array
+   */
+  ScratchBuffer(IntFunction<T> allocate, ToIntFunction<T> length) {
+    this.allocate = allocate;
+    this.length = length;
+    this.arrays = new ThreadLocal<>();
+  }
+
+  /**
+   * Returns the array of the calling thread, allocating a new one if it has none or has one
+   * shorter than the given length.
+   *
+   * @param minLength smallest length the array must have
+   * @return an array of at least the given length, with unspecified contents
+   */
+  T get(int minLength) {
+    SoftReference<T> reference = arrays.get();
+    T array = reference == null ? null : reference.get();
+    if (array == null || length.applyAsInt(array) < minLength) {
+      array = allocate.apply(minLength);
+      arrays.set(new SoftReference<>(array));
+    }
+    return array;
+  }
+}
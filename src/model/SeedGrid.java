@@ -0,0 +1,146 @@
+package model;
+
+/**
+ * A uniform grid of buckets over the seeds of a mosaic, to find the seed closest to a pixel
+ * without measuring the distance to every seed. Each bucket holds the seeds inside one square
+ * cell, sized so that a cell holds about two seeds. A search looks at the cells in rings of
+ * growing size around the pixel and stops once no cell farther out can hold a closer seed.
+ *
+ * <p>Distances are compared squared, in integers. Of the seeds at the smallest distance the one
+ * that comes first wins, like the linear scan in {@code AbstractImage.findClosestSeed}.</p>
+ */
+final class SeedGrid {
+
+  // squared distances below this are integers whose square roots are all different doubles, so
+  // comparing them gives the same order as comparing Point2D.distance
+  private static final long EXACT_LIMIT = 1L << 51;
+  private static final int SEEDS_PER_CELL = 2;
+
+  private final int[] xs;
+  private final int[] ys;
+  private final int cellSize;
+  private final int columns;
+  private final int rows;
+  // the seeds of cell c are cellSeeds[cellStarts[c]] up to cellSeeds[cellStarts[c + 1]]
+  private final int[] cellStarts;
+  private final int[] cellSeeds;
+
+  /**
+   * Constructs a grid over the given seeds of an image of the given size.
+   *
+   * @param xs     x location of every seed, in [0, width)
+   * @param ys     y location of every seed, in [0, height)
+   * @param width  width of the image
+   * @param height height of the image
+   * @throws IllegalArgumentException if there are no seeds or the locations do not match
+   */
+  SeedGrid(int[] xs, int[] ys, int width, int height) throws IllegalArgumentException {
+    if (xs.length == 0 || xs.length != ys.length || width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid seeds");
+    }
+    this.xs = xs;
+    this.ys = ys;
+    double area = (double) width * height;
+    this.cellSize = (int) Math.max(1, Math.ceil(Math.sqrt(area * SEEDS_PER_CELL / xs.length)));
+    this.columns = (width + cellSize - 1) / cellSize;
+    this.rows = (height + cellSize - 1) / cellSize;
+
+    // counting sort of the seeds by cell, keeping them in list order within a cell
+    this.cellStarts = new int[columns * rows + 1];
+    for (int i = 0; i < xs.length; i++) {
+      if (xs[i] < 0 || xs[i] >= width || ys[i] < 0 || ys[i] >= height) {
+        throw new IllegalArgumentException("Invalid seeds");
+      }
+      cellStarts[cellOf(xs[i], ys[i]) + 1]++;
+    }
+    for (int c = 0; c < columns * rows; c++) {
+      cellStarts[c + 1] += cellStarts[c];
+    }
+    this.cellSeeds = new int[xs.length];
+    int[] next = new int[columns * rows];
+    for (int i = 0; i < xs.length; i++) {
+      int cell = cellOf(xs[i], ys[i]);
+      cellSeeds[cellStarts[cell] + next[cell]++] = i;
+    }
+  }
+
+  /**
+   * Returns whether squared distances order the pixels of an image of the given size exactly like
+   * {@code Point2D.distance} does, ties included.
+   *
+   * @param width  width of the image
+   * @param height height of the image
+   * @return true if a grid finds the same seeds as a linear scan
+   */
+  static boolean isExact(int width, int height) {
+    long dx = width - 1L;
+    long dy = height - 1L;
+    return dx * dx + dy * dy < EXACT_LIMIT;
+  }
+
+  /**
+   * Returns the index of the seed closest to the given pixel, the lowest index of those at the
+   * smallest distance.
+   *
+   * @param x x location of the pixel
+   * @param y y location of the pixel
+   * @return index of the closest seed
+   */
+  int nearest(int x, int y) {
+    int cellX = x / cellSize;
+    int cellY = y / cellSize;
+    int best = -1;
+    long bestDistance = Long.MAX_VALUE;
+    int maxRing = Math.max(Math.max(cellX, columns - 1 - cellX),
+        Math.max(cellY, rows - 1 - cellY));
+    for (int ring = 0; ring <= maxRing; ring++) {
+      if (ring > 0) {
+        // every pixel in this ring of cells is at least this far from (x, y) along one axis
+        long gap = (long) (ring - 1) * cellSize + 1;
+        if (gap * gap > bestDistance) {
+          break;
+        }
+      }
+      int top = cellY - ring;
+      int bottom = cellY + ring;
+      for (int row = Math.max(0, top); row <= Math.min(rows - 1, bottom); row++) {
+        // the top and bottom rows of the ring are whole, the rows between only have their ends
+        int step = row == top || row == bottom ? 1 : 2 * ring;
+        for (int column = cellX - ring; column <= cellX + ring; column += step) {
+          if (column < 0 || column >= columns) {
+            continue;
+          }
+          int candidate = nearestInCell(row * columns + column, x, y, best, bestDistance);
+          if (candidate != best) {
+            best = candidate;
+            bestDistance = distance(candidate, x, y);
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  // the closest seed of the cell if it beats the given best, the given best otherwise
+  private int nearestInCell(int cell, int x, int y, int best, long bestDistance) {
+    for (int k = cellStarts[cell]; k < cellStarts[cell + 1]; k++) {
+      int seed = cellSeeds[k];
+      long distance = distance(seed, x, y);
+      if (distance < bestDistance || (distance == bestDistance && seed < best)) {
+        best = seed;
+        bestDistance = distance;
+      }
+    }
+    return best;
+  }
+
+  private long distance(int seed, int x, int y) {
+    long dx = xs[seed] - x;
+    long dy = ys[seed] - y;
+    return dx * dx + dy * dy;
+  }
+
+  private int cellOf(int x, int y) {
+    return (y / cellSize) * columns + x / cellSize;
+  }
+}
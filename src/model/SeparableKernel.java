@@ -0,0 +1,325 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A convolution kernel that is a sum of outer products of a vertical and a horizontal 1-D kernel.
+ * Each term is applied as a horizontal pass followed by a vertical pass, which takes 2n taps per
+ * pixel instead of n * n for an n by n kernel. Each band of rows keeps the horizontal results of
+ * only the n rows around the row it is writing, for every term, in a ring of rows that its thread
+ * reuses for later bands, so a thread needs n * rank rows of doubles however tall its band is.
+ * The vertical pass walks whole rows at a time so that both passes read memory in order. Taps
+ * that fall outside of the image contribute nothing, and only the final sum of all terms is
+ * rounded.
+ */
+final class SeparableKernel implements Filter {
+
+  // largest radius a gaussian kernel can have
+  private static final int MAX_RADIUS = 1 << 15;
+  // singular values this much smaller than the largest are dropped as rounding noise
+  private static final double RANK_TOLERANCE = 1e-10;
+  private static final int MAX_SWEEPS = 60;
+
+  // the ring of horizontal results of every band, and the sums of the row it is writing
+  private static final ScratchBuffer<double[]> ROWS =
+      new ScratchBuffer<>(double[]::new, array -> array.length);
+  private static final ScratchBuffer<double[]> SUMS =
+      new ScratchBuffer<>(double[]::new, array -> array.length);
+
+  private final double[][] horizontals;
+  private final double[][] verticals;
+
+  /**
+   * Constructs a separable kernel from its two 1-D factors.
+   *
+   * @param horizontal weights along a row, of odd length
+   * @param vertical   weights along a column, of odd length
+   * @throws IllegalArgumentException if either factor is null or has even length
+   */
+  SeparableKernel(double[] horizontal, double[] vertical) throws IllegalArgumentException {
+    this(new double[][]{horizontal}, new double[][]{vertical});
+  }
+
+  /**
+   * Constructs a kernel that is the sum of the outer products of the given factors.
+   *
+   * @param horizontals weights along a row of every term, all of the same odd length
+   * @param verticals   weights along a column of every term, all of the same odd length
+   * @throws IllegalArgumentException if the factors are null, have even or different lengths
+   */
+  private SeparableKernel(double[][] horizontals, double[][] verticals)
+      throws IllegalArgumentException {
+    if (horizontals.length == 0 || horizontals.length != verticals.length) {
+      throw new IllegalArgumentException("Invalid Kernel");
+    }
+    this.horizontals = new double[horizontals.length][];
+    this.verticals = new double[verticals.length][];
+    for (int t = 0; t < horizontals.length; t++) {
+      if (horizontals[t] == null || verticals[t] == null
+          || horizontals[t].length % 2 == 0 || verticals[t].length % 2 == 0
+          || horizontals[t].length != horizontals[0].length
+          || verticals[t].length != verticals[0].length) {
+        throw new IllegalArgumentException("Invalid Kernel");
+      }
+      this.horizontals[t] = horizontals[t].clone();
+      this.verticals[t] = verticals[t].clone();
+    }
+  }
+
+  /**
+   * Creates a normalized gaussian kernel with the given standard deviation, cut off at three
+   * standard deviations.
+   *
+   * @param sigma standard deviation in pixels
+   * @return the gaussian kernel
+   * @throws IllegalArgumentException if sigma is not positive or too large
+   */
+  static SeparableKernel gaussian(double sigma) throws IllegalArgumentException {
+    if (!(sigma > 0) || Math.ceil(3 * sigma) > MAX_RADIUS) {
+      throw new IllegalArgumentException("Invalid sigma");
+    }
+    int radius = (int) Math.ceil(3 * sigma);
+    double[] weights = new double[2 * radius + 1];
+    double sum = 0;
+    for (int i = -radius; i <= radius; i++) {
+      weights[i + radius] = Math.exp(-(i * (double) i) / (2 * sigma * sigma));
+      sum += weights[i + radius];
+    }
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] /= sum;
+    }
+    return new SeparableKernel(weights, weights);
+  }
+
+  /**
+   * Returns the factors of the given kernel if it is separable, that is if every row is a multiple
+   * of the same row.
+   *
+   * @param rows square kernel of odd size
+   * @return the kernel as a separable kernel, or null if it is not separable
+   */
+  static SeparableKernel separate(double[][] rows) {
+    int size = rows.length;
+    int pivotRow = 0;
+    int pivotColumn = 0;
+    double largest = 0;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (Math.abs(rows[i][j]) > largest) {
+          largest = Math.abs(rows[i][j]);
+          pivotRow = i;
+          pivotColumn = j;
+        }
+      }
+    }
+
+    double[] column = new double[size];
+    double[] row = new double[size];
+    for (int i = 0; i < size; i++) {
+      column[i] = rows[i][pivotColumn];
+      row[i] = largest == 0 ? 0 : rows[pivotRow][i] / rows[pivotRow][pivotColumn];
+    }
+    double tolerance = 1e-12 * Math.max(1, largest);
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (Math.abs(rows[i][j] - column[i] * row[j]) > tolerance) {
+          return null;
+        }
+      }
+    }
+    return new SeparableKernel(row, column);
+  }
+
+  /**
+   * Decomposes the given kernel into a sum of separable terms with a singular value
+   * decomposition, dropping terms too small to change the result. A kernel of rank k becomes k
+   * terms.
+   *
+   * @param rows square kernel of odd size
+   * @return the kernel as a sum of separable terms
+   */
+  static SeparableKernel decompose(double[][] rows) {
+    int size = rows.length;
+    // one-sided jacobi: rotate the columns of u until they are orthogonal, then u * v^T = rows
+    double[][] u = new double[size][];
+    double[][] v = new double[size][size];
+    for (int i = 0; i < size; i++) {
+      u[i] = rows[i].clone();
+      v[i][i] = 1;
+    }
+    for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+      boolean rotated = false;
+      for (int p = 0; p < size - 1; p++) {
+        for (int q = p + 1; q < size; q++) {
+          double alpha = 0;
+          double beta = 0;
+          double gamma = 0;
+          for (int i = 0; i < size; i++) {
+            alpha += u[i][p] * u[i][p];
+            beta += u[i][q] * u[i][q];
+            gamma += u[i][p] * u[i][q];
+          }
+          if (Math.abs(gamma) <= 1e-15 * Math.sqrt(alpha * beta)) {
+            continue;
+          }
+          rotated = true;
+          double zeta = (beta - alpha) / (2 * gamma);
+          double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+          if (zeta == 0) {
+            t = 1;
+          }
+          double c = 1 / Math.sqrt(1 + t * t);
+          double sin = c * t;
+          for (int i = 0; i < size; i++) {
+            double up = u[i][p];
+            u[i][p] = c * up - sin * u[i][q];
+            u[i][q] = sin * up + c * u[i][q];
+            double vp = v[i][p];
+            v[i][p] = c * vp - sin * v[i][q];
+            v[i][q] = sin * vp + c * v[i][q];
+          }
+        }
+      }
+      if (!rotated) {
+        break;
+      }
+    }
+
+    // the norm of every column of u is its singular value
+    double[] singular = new double[size];
+    double largest = 0;
+    for (int k = 0; k < size; k++) {
+      double sum = 0;
+      for (int i = 0; i < size; i++) {
+        sum += u[i][k] * u[i][k];
+      }
+      singular[k] = Math.sqrt(sum);
+      largest = Math.max(largest, singular[k]);
+    }
+
+    List<double[]> horizontals = new ArrayList<>();
+    List<double[]> verticals = new ArrayList<>();
+    for (int k = 0; k < size; k++) {
+      if (singular[k] <= RANK_TOLERANCE * largest) {
+        continue;
+      }
+      double[] vertical = new double[size];
+      double[] horizontal = new double[size];
+      for (int i = 0; i < size; i++) {
+        vertical[i] = u[i][k];
+        horizontal[i] = v[i][k];
+      }
+      verticals.add(vertical);
+      horizontals.add(horizontal);
+    }
+    if (horizontals.isEmpty()) {
+      return new SeparableKernel(new double[size], new double[size]);
+    }
+    return new SeparableKernel(horizontals.toArray(new double[0][]),
+        verticals.toArray(new double[0][]));
+  }
+
+  /**
+   * Returns the number of separable terms in this kernel.
+   *
+   * @return the number of terms
+   */
+  int rank() {
+    return horizontals.length;
+  }
+
+  @Override
+  public void apply(int[] src, int[] dest, int width, int height, int maxColor,
+      RowBands.RowOperation then) {
+    int radius = verticals[0].length / 2;
+    // keep the rows recomputed around every band small compared to the band
+    RowBands.forEach(width, height, 8 * radius + 1, (rowStart, rowEnd) -> {
+      apply(src, dest, width, height, maxColor, rowStart, rowEnd);
+      then.apply(rowStart, rowEnd);
+    });
+  }
+
+  // convolves the rows [rowStart, rowEnd) of src into the same rows of dest
+  private void apply(int[] src, int[] dest, int width, int height, int maxColor, int rowStart,
+      int rowEnd) {
+    int radius = verticals[0].length / 2;
+    int rowStride = width * 3;
+    // the rows a row of dest needs are consecutive, so they never share a slot of the ring
+    int window = Math.min(2 * radius + 1, height);
+    int termStride = window * rowStride;
+
+    double[] rows = ROWS.get(horizontals.length * termStride);
+    double[] sums = SUMS.get(rowStride);
+    int next = Math.max(0, rowStart - radius);
+    for (int h = rowStart; h < rowEnd; h++) {
+      // horizontal pass over the rows this row needs that are not in the ring yet
+      for (int last = Math.min(height, h + radius + 1); next < last; next++) {
+        int slot = next % window * rowStride;
+        for (int t = 0; t < horizontals.length; t++) {
+          convolveRow(src, next * rowStride, horizontals[t], rows, t * termStride + slot, width);
+        }
+      }
+
+      // vertical pass, a whole row at a time
+      Arrays.fill(sums, 0, rowStride, 0);
+      for (int t = 0; t < verticals.length; t++) {
+        double[] vertical = verticals[t];
+        for (int i = 0; i < vertical.length; i++) {
+          int row = h - radius + i;
+          if (row < 0 || row >= height) {
+            continue;
+          }
+          double weight = vertical[i];
+          int start = t * termStride + row % window * rowStride;
+          for (int k = 0; k < rowStride; k++) {
+            sums[k] += weight * rows[start + k];
+          }
+        }
+      }
+
+      int out = h * rowStride;
+      for (int k = 0; k < rowStride; k++) {
+        dest[out + k] = Kernel.clamp(sums[k], maxColor);
+      }
+    }
+  }
+
+  // convolves one row of src starting at srcStart with the horizontal weights into dest
+  private static void convolveRow(int[] src, int srcStart, double[] horizontal, double[] dest,
+      int destStart, int width) {
+    int radius = horizontal.length / 2;
+    int leftEnd = Math.min(radius, width);
+    int rightStart = Math.max(leftEnd, width - radius);
+    for (int w = 0; w < width; w++) {
+      double red = 0;
+      double green = 0;
+      double blue = 0;
+      if (w >= leftEnd && w < rightStart) {
+        int p = srcStart + (w - radius) * 3;
+        for (double weight : horizontal) {
+          red += weight * src[p];
+          green += weight * src[p + 1];
+          blue += weight * src[p + 2];
+          p += 3;
+        }
+      } else {
+        for (int j = 0; j < horizontal.length; j++) {
+          int column = w - radius + j;
+          if (column < 0 || column >= width) {
+            continue;
+          }
+          int p = srcStart + column * 3;
+          red += horizontal[j] * src[p];
+          green += horizontal[j] * src[p + 1];
+          blue += horizontal[j] * src[p + 2];
+        }
+      }
+      int out = destStart + w * 3;
+      dest[out] = red;
+      dest[out + 1] = green;
+      dest[out + 2] = blue;
+    }
+  }
+}
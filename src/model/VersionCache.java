@@ -0,0 +1,42 @@
+package model;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Holds a value made from an image at some version of its pixels, to be reused for as long as the
+ * image stays at that version. The value is only softly referenced, so the garbage collector
+ * drops it before running out of memory and it is then made again when next needed.
+ *
+ * @param <T> type of the value
+ */
+final class VersionCache<T> {
+
+  private SoftReference<T> value;
+  private long version;
+
+  VersionCache() {
+    this.value = null;
+    this.version = -1;
+  }
+
+  /**
+   * Returns the value if it was made at the given version and is still held.
+   *
+   * @param version current version of the image
+   * @return the value, or null if it has to be made again
+   */
+  T get(long version) {
+    return value != null && this.version == version ? value.get() : null;
+  }
+
+  /**
+   * Holds the given value, made at the given version, in place of the previous one.
+   *
+   * @param version version of the image the value was made from
+   * @param value   the value
+   */
+  void put(long version, T value) {
+    this.value = new SoftReference<>(value);
+    this.version = version;
+  }
+}
@@ -0,0 +1,198 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Labels every pixel of an image with its closest seed by sweeping a distance transform over the
+ * image, in time proportional to the number of pixels no matter how many seeds there are. A first
+ * sweep down and up every column finds the closest seed within the column. A second sweep along
+ * every row takes the lower envelope of the parabolas (u - x)^2 + dy(x)^2 of the columns x of the
+ * row, which gives the closest seed over the whole image (the separable euclidean distance
+ * transform of Felzenszwalb and Huttenlocher).
+ *
+ * <p>Everything is computed in integers: squared distances, and the points where parabolas cross
+ * as exact fractions. Where several seeds are at the same distance the one with the lowest index
+ * wins, so the labels are the same as those of a {@code SeedGrid}.</p>
+ */
+final class VoronoiSweep {
+
+  // the crossing fractions of an image this many pixels across multiply within a long
+  private static final int MAX_SIZE = 1 << 20;
+  // the closest seed above every pixel of a band of columns
+  private static final ScratchBuffer<int[]> ABOVE =
+      new ScratchBuffer<>(int[]::new, array -> array.length);
+
+  private VoronoiSweep() {
+  }
+
+  /**
+   * Returns whether the sweep can label an image of the given size exactly.
+   *
+   * @param width  width of the image
+   * @param height height of the image
+   * @return true if the labels are exact
+   */
+  static boolean isExact(int width, int height) {
+    return width <= MAX_SIZE && height <= MAX_SIZE;
+  }
+
+  /**
+   * Labels every pixel with the index of its closest seed, the lowest index of those at the
+   * smallest distance. Columns and then rows are split into bands that run in parallel.
+   *
+   * @param xs     x location of every seed, in [0, width)
+   * @param ys     y location of every seed, in [0, height)
+   * @param width  width of the image
+   * @param height height of the image
+   * @return the seed index of every pixel, row by row
+   * @throws IllegalArgumentException if there are no seeds or the locations do not match
+   */
+  static int[] label(int[] xs, int[] ys, int width, int height) throws IllegalArgumentException {
+    int[] labels = new int[width * height];
+    label(xs, ys, width, height, labels);
+    return labels;
+  }
+
+  /**
+   * Labels every pixel with the index of its closest seed like {@link #label(int[], int[], int,
+   * int)}, into the given array, so that labeling several sets of seeds can reuse it.
+   *
+   * @param xs     x location of every seed, in [0, width)
+   * @param ys     y location of every seed, in [0, height)
+   * @param width  width of the image
+   * @param height height of the image
+   * @param labels receives the seed index of every pixel, row by row
+   * @throws IllegalArgumentException if there are no seeds, the locations do not match or labels
+   *                                  is too short
+   */
+  static void label(int[] xs, int[] ys, int width, int height, int[] labels)
+      throws IllegalArgumentException {
+    if (xs.length == 0 || xs.length != ys.length || width <= 0 || height <= 0
+        || labels.length < width * height) {
+      throw new IllegalArgumentException("Invalid seeds");
+    }
+    // the first seed at every location, -1 where there is none
+    Arrays.fill(labels, 0, width * height, -1);
+    for (int i = xs.length - 1; i >= 0; i--) {
+      if (xs[i] < 0 || xs[i] >= width || ys[i] < 0 || ys[i] >= height) {
+        throw new IllegalArgumentException("Invalid seeds");
+      }
+      labels[ys[i] * width + xs[i]] = i;
+    }
+
+    // bands of columns, every band sweeps its columns a whole row at a time
+    RowBands.forEach(height, width, (columnStart, columnEnd) ->
+        sweepColumns(labels, ys, width, height, columnStart, columnEnd));
+    RowBands.forEach(width, height, (rowStart, rowEnd) -> {
+      Envelope envelope = new Envelope(width);
+      for (int y = rowStart; y < rowEnd; y++) {
+        envelope.sweepRow(labels, ys, width, y);
+      }
+    });
+  }
+
+  // replaces the labels of the columns [columnStart, columnEnd) with the closest seed in the column
+  private static void sweepColumns(int[] labels, int[] ys, int width, int height,
+      int columnStart, int columnEnd) {
+    int columns = columnEnd - columnStart;
+    // the last seed seen in every column, going down and then going up
+    int[] last = new int[columns];
+    Arrays.fill(last, -1);
+    int[] above = ABOVE.get(height * columns);
+    for (int y = 0; y < height; y++) {
+      for (int c = 0; c < columns; c++) {
+        int label = labels[y * width + columnStart + c];
+        if (label >= 0) {
+          last[c] = label;
+        }
+        above[y * columns + c] = last[c];
+      }
+    }
+    Arrays.fill(last, -1);
+    for (int y = height - 1; y >= 0; y--) {
+      for (int c = 0; c < columns; c++) {
+        int p = y * width + columnStart + c;
+        if (labels[p] >= 0) {
+          last[c] = labels[p];
+        }
+        int up = above[y * columns + c];
+        int down = last[c];
+        int label = up;
+        if (down >= 0 && (up < 0 || ys[down] - y < y - ys[up]
+            || (ys[down] - y == y - ys[up] && down < up))) {
+          label = down;
+        }
+        labels[p] = label;
+      }
+    }
+  }
+
+  /**
+   * The lower envelope of the parabolas of the columns of one row, reused from row to row.
+   */
+  private static final class Envelope {
+
+    // columns of the parabolas on the envelope, left to right
+    private final int[] columns;
+    // label of every parabola and its value at u = 0, dy^2 + x^2
+    private final int[] labels;
+    private final long[] offsets;
+    // parabola k is on the envelope from starts[k] / startDens[k] on
+    private final long[] starts;
+    private final long[] startDens;
+
+    Envelope(int width) {
+      this.columns = new int[width];
+      this.labels = new int[width];
+      this.offsets = new long[width];
+      this.starts = new long[width];
+      this.startDens = new long[width];
+    }
+
+    // replaces the column labels of row y with the closest seed in the whole image
+    void sweepRow(int[] image, int[] ys, int width, int y) {
+      int row = y * width;
+      int top = -1;
+      for (int x = 0; x < width; x++) {
+        int label = image[row + x];
+        if (label < 0) {
+          continue;
+        }
+        long dy = ys[label] - y;
+        long offset = dy * dy + (long) x * x;
+        long start = 0;
+        long startDen = 1;
+        while (top >= 0) {
+          // (u - columns[top])^2 + ... crosses (u - x)^2 + ... at start / startDen
+          start = offset - offsets[top];
+          startDen = 2L * (x - columns[top]);
+          // a parabola only beaten where it ties with both neighbors is kept for the tie
+          if (top > 0 && start * startDens[top] < starts[top] * startDen) {
+            top--;
+          } else {
+            break;
+          }
+        }
+        top++;
+        columns[top] = x;
+        labels[top] = label;
+        offsets[top] = offset;
+        starts[top] = start;
+        startDens[top] = startDen;
+      }
+
+      int k = 0;
+      for (int u = 0; u < width; u++) {
+        while (k < top && starts[k + 1] < (long) u * startDens[k + 1]) {
+          k++;
+        }
+        // parabolas starting exactly at u tie with parabola k there
+        int label = labels[k];
+        for (int j = k + 1; j <= top && starts[j] == (long) u * startDens[j]; j++) {
+          label = Math.min(label, labels[j]);
+        }
+        image[row + u] = label;
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests that kernels given as lists round every tap like blur and sharpen below the fast fourier
+ * transform size, and that large kernels stay within 1 of the once rounded sum.
+ */
+public class FilterImageTest {
+
+  private static final int WIDTH = 41;
+  private static final int HEIGHT = 29;
+
+  @Test
+  public void testSmallKernelRoundsEveryTap() {
+    int[] pixels = randomPixels(1);
+    double[][] rows = {
+        {0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}};
+    PPMImageEnhanced expected = image(pixels);
+    expected.blurImage();
+    PPMImageEnhanced image = image(pixels);
+    image.pixels = image.filterImage(boxed(rows));
+    assertArrayEquals(expected.pixels, image.pixels);
+  }
+
+  @Test
+  public void testLargeKernelRoundsTheSum() {
+    int size = Convolution.FFT_MIN_SIZE;
+    Random random = new Random(size);
+    double[][] rows = new double[size][size];
+    for (double[] row : rows) {
+      for (int i = 0; i < size; i++) {
+        row[i] = (random.nextDouble() - 0.25) / size;
+      }
+    }
+    int[] pixels = randomPixels(2);
+    int[] expected = new int[pixels.length];
+    new Kernel(rows, false).apply(pixels, expected, WIDTH, HEIGHT, 255);
+    PPMImageEnhanced image = image(pixels);
+    int[] actual = image.filterImage(boxed(rows));
+    for (int i = 0; i < expected.length; i++) {
+      assertTrue("component " + i, Math.abs(expected[i] - actual[i]) <= 1);
+    }
+  }
+
+  private static PPMImageEnhanced image(int[] pixels) {
+    IPixel[][] grid = new IPixel[HEIGHT][WIDTH];
+    for (int h = 0; h < HEIGHT; h++) {
+      for (int w = 0; w < WIDTH; w++) {
+        int i = (h * WIDTH + w) * 3;
+        grid[h][w] = new Pixel(pixels[i], pixels[i + 1], pixels[i + 2]);
+      }
+    }
+    return new PPMImageEnhanced(WIDTH, HEIGHT, 255, grid);
+  }
+
+  private static List<List<Double>> boxed(double[][] rows) {
+    List<List<Double>> list = new ArrayList<>();
+    for (double[] row : rows) {
+      List<Double> boxedRow = new ArrayList<>();
+      for (double weight : row) {
+        boxedRow.add(weight);
+      }
+      list.add(boxedRow);
+    }
+    return list;
+  }
+
+  private static int[] randomPixels(long seed) {
+    Random random = new Random(seed);
+    int[] pixels = new int[WIDTH * HEIGHT * 3];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(256);
+    }
+    return pixels;
+  }
+}
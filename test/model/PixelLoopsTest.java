@@ -0,0 +1,155 @@
+package model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the SIMD loops of {@code PixelLoops} write exactly the same pixels as the scalar
+ * loops for blur, sharpen and the color matrices. Needs the classes of the {@code vector} source
+ * root and {@code --add-modules jdk.incubator.vector}, and is skipped otherwise.
+ */
+public class PixelLoopsTest {
+
+  // sizes with a vector's worth of interior pixels, and without, to cover every remainder
+  private static final int[][] SIZES = {{1, 1}, {3, 2}, {5, 5}, {7, 4}, {13, 9}, {37, 21},
+      {64, 17}, {129, 33}};
+  private static final int[] MAX_COLORS = {1, 255, 65535};
+
+  private boolean enabled;
+
+  @Before
+  public void setUp() {
+    assumeTrue(PixelLoops.isAvailable());
+    enabled = PixelLoops.get() != null;
+  }
+
+  @After
+  public void tearDown() {
+    PixelLoops.setEnabled(enabled);
+  }
+
+  @Test
+  public void testBlur() {
+    for (int[] size : SIZES) {
+      for (int maxColor : MAX_COLORS) {
+        assertConvolvesAlike(AbstractImage.BLUR, size[0], size[1], maxColor);
+      }
+    }
+  }
+
+  @Test
+  public void testSharpen() {
+    for (int[] size : SIZES) {
+      for (int maxColor : MAX_COLORS) {
+        assertConvolvesAlike(AbstractImage.SHARPEN, size[0], size[1], maxColor);
+      }
+    }
+  }
+
+  @Test
+  public void testSummedKernel() {
+    Kernel kernel = new Kernel(new double[][]{
+        {0.3, -1.7, 0.05},
+        {2.25, 0.5, -0.75},
+        {-0.1, 1.1, 0.2}}, false);
+    for (int[] size : SIZES) {
+      for (int maxColor : MAX_COLORS) {
+        assertConvolvesAlike(kernel, size[0], size[1], maxColor);
+      }
+    }
+  }
+
+  @Test
+  public void testLargeComponents() {
+    // products too large for the rounding shortcut of the vector loops
+    Kernel summed = new Kernel(new double[][]{{1e4, -3e4, 2e4}, {5e3, 1, -5e3}, {7, 8, 9}},
+        false);
+    Kernel rounded = new Kernel(new double[][]{{1e4, -3e4, 2e4}, {5e3, 1, -5e3}, {7, 8, 9}});
+    for (int[] size : SIZES) {
+      assertConvolvesAlike(summed, size[0], size[1], Integer.MAX_VALUE);
+      assertConvolvesAlike(rounded, size[0], size[1], Integer.MAX_VALUE);
+    }
+  }
+
+  @Test
+  public void testGreyscale() {
+    for (int[] size : SIZES) {
+      for (int maxColor : MAX_COLORS) {
+        assertTransformsAlike(new ColorMatrix[]{AbstractImage.GREYSCALE}, size[0], size[1],
+            maxColor);
+      }
+    }
+  }
+
+  @Test
+  public void testSepia() {
+    for (int[] size : SIZES) {
+      for (int maxColor : MAX_COLORS) {
+        assertTransformsAlike(new ColorMatrix[]{AbstractImage.SEPIA}, size[0], size[1],
+            maxColor);
+      }
+    }
+  }
+
+  @Test
+  public void testChain() {
+    ColorMatrix[] chain = {AbstractImage.SEPIA, AbstractImage.GREYSCALE, AbstractImage.SEPIA};
+    for (int[] size : SIZES) {
+      for (int maxColor : MAX_COLORS) {
+        assertTransformsAlike(chain, size[0], size[1], maxColor);
+      }
+    }
+  }
+
+  // convolves the same pixels with and without the SIMD loops and compares the results
+  private static void assertConvolvesAlike(Kernel kernel, int width, int height, int maxColor) {
+    int[] src = pixels(width, height, maxColor);
+    int[] scalar = new int[src.length];
+    int[] vector = new int[src.length];
+    PixelLoops.setEnabled(false);
+    kernel.apply(src, scalar, width, height, maxColor);
+    PixelLoops.setEnabled(true);
+    kernel.apply(src, vector, width, height, maxColor);
+    assertArrayEquals(width + "x" + height + " max " + maxColor, scalar, vector);
+  }
+
+  // transforms the same pixels with and without the SIMD loops and compares the results
+  private static void assertTransformsAlike(ColorMatrix[] chain, int width, int height,
+      int maxColor) {
+    int[] src = pixels(width, height, maxColor);
+    int[] scalar = new int[src.length];
+    int[] vector = new int[src.length];
+    PixelLoops.setEnabled(false);
+    ColorMatrix.applyAll(chain, src, scalar, maxColor, 0, src.length);
+    PixelLoops.setEnabled(true);
+    ColorMatrix.applyAll(chain, src, vector, maxColor, 0, src.length);
+    assertArrayEquals(width + "x" + height + " max " + maxColor, scalar, vector);
+
+    // in place, as the image transforms its own pixels
+    int[] inPlace = src.clone();
+    ColorMatrix.applyAll(chain, inPlace, inPlace, maxColor, 0, inPlace.length);
+    assertArrayEquals(width + "x" + height + " max " + maxColor, scalar, inPlace);
+  }
+
+  // random components around the clamp edges, including ones outside of [0, maxColor]
+  private static int[] pixels(int width, int height, int maxColor) {
+    Random random = new Random(31L * width + height + maxColor);
+    long[] edges = {0, 1, -1, maxColor, maxColor - 1L, maxColor + 1L, -maxColor};
+    int[] pixels = new int[width * height * 3];
+    for (int i = 0; i < pixels.length; i++) {
+      long value;
+      if (random.nextInt(4) == 0) {
+        value = edges[random.nextInt(edges.length)];
+      } else {
+        value = (long) (random.nextDouble() * (maxColor + 1.0));
+      }
+      pixels[i] = (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, value));
+    }
+    return pixels;
+  }
+}
@@ -0,0 +1,273 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests that the packed pixel paths give the same pixels as the original per-pixel
+ * {@code IPixel} implementation: the kernels of blur and sharpen, the color matrices of greyscale
+ * and sepia, deferred passes, fast color composition, both mosaic engines and binary PPM files.
+ * The reference results below are computed with {@code IPixel} operations exactly like the
+ * original code did.
+ */
+public class PixelReferenceTest {
+
+  private static final int[][] SIZES = {{1, 1}, {2, 3}, {5, 4}, {37, 21}};
+
+  private static final double[][] BLUR = {
+      {0.0625, 0.125, 0.0625},
+      {0.125, 0.25, 0.125},
+      {0.0625, 0.125, 0.0625}};
+  private static final double[][] SHARPEN = {
+      {-0.125, -0.125, -0.125, -0.125, -0.125},
+      {-0.125, 0.25, 0.25, 0.25, -0.125},
+      {-0.125, 0.25, 1.0, 0.25, -0.125},
+      {-0.125, 0.25, 0.25, 0.25, -0.125},
+      {-0.125, -0.125, -0.125, -0.125, -0.125}};
+  private static final double[][] GREYSCALE = {
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722}};
+  private static final double[][] SEPIA = {
+      {0.3930, .7690, 0.189},
+      {.349, .686, .168},
+      {.272, .534, .131}};
+
+  @Test
+  public void testBlur() {
+    for (int[] size : SIZES) {
+      IPixel[][] pixels = randomPixels(size[0], size[1], 1);
+      PPMImageEnhanced image = image(pixels);
+      image.blurImage();
+      assertPixels(filter(pixels, BLUR), image);
+    }
+  }
+
+  @Test
+  public void testSharpen() {
+    for (int[] size : SIZES) {
+      IPixel[][] pixels = randomPixels(size[0], size[1], 2);
+      PPMImageEnhanced image = image(pixels);
+      image.sharpenImage();
+      assertPixels(filter(pixels, SHARPEN), image);
+    }
+  }
+
+  @Test
+  public void testGreyscaleAndSepia() {
+    for (int[] size : SIZES) {
+      IPixel[][] pixels = randomPixels(size[0], size[1], 3);
+      PPMImageEnhanced image = image(pixels);
+      image.greyscaleImage();
+      assertPixels(transform(pixels, GREYSCALE), image);
+      image.sepiaImage();
+      assertPixels(transform(transform(pixels, GREYSCALE), SEPIA), image);
+    }
+  }
+
+  @Test
+  public void testDeferredPasses() {
+    for (int[] size : SIZES) {
+      IPixel[][] pixels = randomPixels(size[0], size[1], 4);
+      PPMImageEnhanced image = image(pixels);
+      image.setDeferred(true);
+      image.sepiaImage();
+      image.blurImage();
+      image.greyscaleImage();
+      image.sepiaImage();
+      image.sharpenImage();
+      image.blurImage();
+      image.greyscaleImage();
+      image.setDeferred(false);
+
+      IPixel[][] expected = transform(pixels, SEPIA);
+      expected = transform(transform(filter(expected, BLUR), GREYSCALE), SEPIA);
+      expected = transform(filter(filter(expected, SHARPEN), BLUR), GREYSCALE);
+      assertPixels(expected, image);
+    }
+  }
+
+  @Test
+  public void testFastComposition() {
+    for (int[] size : SIZES) {
+      IPixel[][] pixels = randomPixels(size[0], size[1], 5);
+      PPMImageEnhanced image = image(pixels);
+      image.setColorComposition(ColorComposition.FAST);
+      image.sepiaImage();
+      image.greyscaleImage();
+      image.sepiaImage();
+      image.evaluate();
+      assertPixels(transform(pixels, then(then(SEPIA, GREYSCALE), SEPIA)), image);
+    }
+  }
+
+  @Test
+  public void testMosaicEngines() {
+    int[] seeds = {1, 2, 7, 60, 2000};
+    for (int[] size : SIZES) {
+      for (int count : seeds) {
+        IPixel[][] pixels = randomPixels(size[0], size[1], 6);
+        IPixel[][] expected = mosaic(pixels, count, new Random(count));
+        PPMImageEnhanced nearest = image(pixels);
+        nearest.mosaic(count, count, MosaicEngine.NEAREST_SEED);
+        assertPixels(expected, nearest);
+        PPMImageEnhanced sweep = image(pixels);
+        sweep.mosaic(count, count, MosaicEngine.SWEEP);
+        assertPixels(expected, sweep);
+      }
+    }
+  }
+
+  @Test
+  public void testBinaryPpmRoundTrip() throws IOException {
+    File directory = Files.createTempDirectory("ppm").toFile();
+    try {
+      for (int maxColor : new int[]{1, 255, 256, 65535}) {
+        for (int[] size : SIZES) {
+          IPixel[][] pixels = randomPixels(size[0], size[1], maxColor, 7);
+          PPMBinaryImage image = new PPMBinaryImage(size[0], size[1], maxColor, pixels);
+          ImageCreatorEnhanced.writeImage(image, "image.ppm", directory.getPath());
+          PPMImageEnhanced read = (PPMImageEnhanced) ImageCreatorEnhanced.readPPMEnhanced(
+              new File(directory, "image.ppm").getPath());
+          assertEquals(maxColor, read.maxColor);
+          assertPixels(pixels, read);
+        }
+      }
+    } finally {
+      new File(directory, "image.ppm").delete();
+      directory.delete();
+    }
+  }
+
+  // the original addFilter: every tap is rounded by IPixel.multiply and summed by IPixel.add
+  private static IPixel[][] filter(IPixel[][] pixels, double[][] kernel) {
+    int height = pixels.length;
+    int width = pixels[0].length;
+    int radius = kernel.length / 2;
+    IPixel[][] result = new IPixel[height][width];
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        IPixel sum = new Pixel(0, 0, 0);
+        for (int i = 0; i < kernel.length; i++) {
+          for (int j = 0; j < kernel.length; j++) {
+            int row = h - radius + i;
+            int column = w - radius + j;
+            if (row >= 0 && column >= 0 && row < height && column < width) {
+              sum = sum.add(pixels[row][column].multiply(kernel[i][j]));
+            }
+          }
+        }
+        result[h][w] = sum.clampBounds(255);
+      }
+    }
+    return result;
+  }
+
+  // the original applyColorTransformation
+  private static IPixel[][] transform(IPixel[][] pixels, double[][] matrix) {
+    List<List<Double>> rows = new ArrayList<>();
+    for (double[] row : matrix) {
+      rows.add(Arrays.asList(row[0], row[1], row[2]));
+    }
+    IPixel[][] result = new IPixel[pixels.length][pixels[0].length];
+    for (int h = 0; h < pixels.length; h++) {
+      for (int w = 0; w < pixels[0].length; w++) {
+        result[h][w] = pixels[h][w].linearCombine(rows).clampBounds(255);
+      }
+    }
+    return result;
+  }
+
+  // the matrix of first followed by next, multiplied in the same order as ColorMatrix.then
+  private static double[][] then(double[][] first, double[][] next) {
+    double[][] product = new double[3][3];
+    for (int row = 0; row < 3; row++) {
+      for (int column = 0; column < 3; column++) {
+        double sum = 0;
+        for (int k = 0; k < 3; k++) {
+          sum += next[row][k] * first[k][column];
+        }
+        product[row][column] = sum;
+      }
+    }
+    return product;
+  }
+
+  // the original mosaic: the first of the closest seeds wins, seeds at the same location are one
+  // cluster, and the average is summed by IPixel.add and divided by IPixel.divide
+  private static IPixel[][] mosaic(IPixel[][] pixels, int seeds, Random rand) {
+    int height = pixels.length;
+    int width = pixels[0].length;
+    List<Point2D> points = new ArrayList<>();
+    for (int i = 0; i < seeds; i++) {
+      points.add(new Point(rand.nextInt(width), rand.nextInt(height)));
+    }
+    int[][] labels = new int[height][width];
+    IPixel[] sums = new IPixel[seeds];
+    int[] counts = new int[seeds];
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        double smallest = Integer.MAX_VALUE;
+        int closest = 0;
+        for (int i = 0; i < seeds; i++) {
+          if (points.get(i).distance(w, h) < smallest) {
+            closest = i;
+            smallest = points.get(i).distance(w, h);
+          }
+        }
+        labels[h][w] = closest;
+        sums[closest] = sums[closest] == null ? pixels[h][w] : sums[closest].add(pixels[h][w]);
+        counts[closest]++;
+      }
+    }
+    IPixel[][] result = new IPixel[height][width];
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        result[h][w] = sums[labels[h][w]].divide(counts[labels[h][w]]);
+      }
+    }
+    return result;
+  }
+
+  private static PPMImageEnhanced image(IPixel[][] pixels) {
+    IPixel[][] copy = new IPixel[pixels.length][];
+    for (int h = 0; h < pixels.length; h++) {
+      copy[h] = pixels[h].clone();
+    }
+    return new PPMImageEnhanced(pixels[0].length, pixels.length, 255, copy);
+  }
+
+  private static IPixel[][] randomPixels(int width, int height, long seed) {
+    return randomPixels(width, height, 255, seed);
+  }
+
+  private static IPixel[][] randomPixels(int width, int height, int maxColor, long seed) {
+    Random random = new Random(31L * seed + width * 7L + height);
+    IPixel[][] pixels = new IPixel[height][width];
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        pixels[h][w] = new Pixel(random.nextInt(maxColor + 1), random.nextInt(maxColor + 1),
+            random.nextInt(maxColor + 1));
+      }
+    }
+    return pixels;
+  }
+
+  private static void assertPixels(IPixel[][] expected, AbstractImageEnhanced image) {
+    for (int h = 0; h < expected.length; h++) {
+      for (int w = 0; w < expected[0].length; w++) {
+        assertEquals(h + "," + w, expected[h][w], image.getPixel(h, w));
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests that an image and the format views sharing its pixels never write into each other's
+ * pixels through the back buffer, however many filters a deferred evaluation runs.
+ */
+public class SharedPixelsTest {
+
+  private static final int WIDTH = 23;
+  private static final int HEIGHT = 17;
+
+  @Test
+  public void testDeferredFiltersLeaveViewAlone() {
+    IPixel[][] pixels = randomPixels(1);
+    AbstractImageEnhanced owner = new PPMImageEnhanced(WIDTH, HEIGHT, 255, pixels);
+    AbstractImageEnhanced view = (AbstractImageEnhanced) owner.toPPM();
+    owner.setDeferred(true);
+    owner.blurImage();
+    owner.sharpenImage();
+    owner.blurImage();
+    owner.evaluate();
+
+    assertPixels(pixels, view);
+    AbstractImageEnhanced expected = new PPMImageEnhanced(WIDTH, HEIGHT, 255, pixels);
+    expected.blurImage();
+    expected.sharpenImage();
+    expected.blurImage();
+    assertSamePixels(expected, owner);
+  }
+
+  @Test
+  public void testDeferredFiltersOnViewLeaveOwnerAlone() {
+    IPixel[][] pixels = randomPixels(2);
+    AbstractImageEnhanced owner = new PPMImageEnhanced(WIDTH, HEIGHT, 255, pixels);
+    AbstractImageEnhanced view = (AbstractImageEnhanced) owner.toPNG();
+    view.setDeferred(true);
+    view.blurImage();
+    view.blurImage();
+    view.evaluate();
+
+    assertPixels(pixels, owner);
+    AbstractImageEnhanced expected = new PPMImageEnhanced(WIDTH, HEIGHT, 255, pixels);
+    expected.blurImage();
+    expected.blurImage();
+    assertSamePixels(expected, view);
+  }
+
+  @Test
+  public void testFilterAfterSharingLeavesViewAlone() {
+    IPixel[][] pixels = randomPixels(3);
+    AbstractImageEnhanced owner = new PPMImageEnhanced(WIDTH, HEIGHT, 255, pixels);
+    AbstractImageEnhanced view = (AbstractImageEnhanced) owner.toJPEG();
+    owner.blurImage();
+    owner.sharpenImage();
+    owner.greyscaleImage();
+    owner.blurImage();
+
+    assertPixels(pixels, view);
+  }
+
+  private static IPixel[][] randomPixels(long seed) {
+    Random random = new Random(seed);
+    IPixel[][] pixels = new IPixel[HEIGHT][WIDTH];
+    for (int h = 0; h < HEIGHT; h++) {
+      for (int w = 0; w < WIDTH; w++) {
+        pixels[h][w] = new Pixel(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return pixels;
+  }
+
+  private static void assertPixels(IPixel[][] expected, AbstractImageEnhanced image) {
+    for (int h = 0; h < HEIGHT; h++) {
+      for (int w = 0; w < WIDTH; w++) {
+        assertEquals(expected[h][w], image.getPixel(h, w));
+      }
+    }
+  }
+
+  private static void assertSamePixels(AbstractImageEnhanced expected,
+      AbstractImageEnhanced image) {
+    for (int h = 0; h < HEIGHT; h++) {
+      for (int w = 0; w < WIDTH; w++) {
+        assertEquals(expected.getPixel(h, w), image.getPixel(h, w));
+      }
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The inner loops of convolutions and color transformations written with the Vector API, using
+ * the widest vectors of doubles the processor supports and as many ints per vector. Rounding and
+ * truncation are done with lane-wise comparisons so that every lane gets exactly the value of
+ * {@code Math.round} and of an {@code (int)} cast, and products and sums are done in the same
+ * order as the scalar loops, so results are identical to them.
+ *
+ * <p>This class needs the {@code jdk.incubator.vector} module, so it is compiled on its own
+ * against the classes of {@code src}, and must only be loaded through {@code PixelLoops}.</p>
+ */
+final class VectorPixelLoops extends PixelLoops {
+
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Integer> INTS =
+      VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+  // component offsets of the pixels in a vector, for gathering a single channel
+  private static final int[] CHANNEL = new int[DOUBLES.length()];
+  // doubles smaller than this in magnitude fit in an int
+  private static final double INT_LIMIT = 0x1p31;
+  // adding and subtracting this rounds a double smaller than 2^51 to the nearest integer
+  private static final double ROUNDING = 0x1.8p52;
+
+  static {
+    for (int lane = 0; lane < CHANNEL.length; lane++) {
+      CHANNEL[lane] = lane * 3;
+    }
+  }
+
+  @Override
+  boolean isUseful() {
+    return DOUBLES.length() >= 4;
+  }
+
+  @Override
+  int convolve(int[] src, int[] dest, int start, int pixels, int[] offsets, double[] weights,
+      boolean roundEachTap, int maxColor) {
+    int components = pixels * 3;
+    int done = roundEachTap
+        ? convolveRounded(src, dest, start, components, offsets, weights, maxColor)
+        : convolveSummed(src, dest, start, components, offsets, weights, maxColor);
+    // the last vector may have ended inside a pixel, the caller rewrites that pixel
+    return done / 3;
+  }
+
+  // the vector operations are all written inside the loops: helper methods returning vectors are
+  // too large to be inlined and would allocate every vector they return
+
+  private static int convolveRounded(int[] src, int[] dest, int start, int components,
+      int[] offsets, double[] weights, int maxColor) {
+    int lanes = DOUBLES.length();
+    // every rounded product fits in an int, and so does their sum
+    double limit = INT_LIMIT / 2 / offsets.length;
+    double[] sums = new double[lanes];
+    int done = 0;
+    for (; done + lanes <= components; done += lanes) {
+      int k = start + done;
+      DoubleVector sum = DoubleVector.zero(DOUBLES);
+      for (int t = 0; t < offsets.length; t++) {
+        DoubleVector products = ((DoubleVector) IntVector.fromArray(INTS, src, k + offsets[t])
+            .convertShape(VectorOperators.I2D, DOUBLES, 0)).mul(weights[t]);
+        if (!products.abs().compare(VectorOperators.LT, limit).allTrue()) {
+          // too big or not a number, the caller rounds the rest
+          return done;
+        }
+        // Math.round: the floor of every product, plus one if its fraction is at least .5
+        DoubleVector nearest = products.add(ROUNDING).sub(ROUNDING);
+        DoubleVector floor = nearest.blend(nearest.sub(1.0),
+            nearest.compare(VectorOperators.GT, products));
+        sum = sum.add(floor.blend(floor.add(1.0),
+            products.sub(floor).compare(VectorOperators.GE, 0.5)));
+      }
+      sum.blend(0.0, sum.compare(VectorOperators.LT, 0.0))
+          .blend(maxColor, sum.compare(VectorOperators.GT, maxColor))
+          .intoArray(sums, 0);
+      for (int lane = 0; lane < lanes; lane++) {
+        dest[k + lane] = (int) sums[lane];
+      }
+    }
+    return done;
+  }
+
+  private static int convolveSummed(int[] src, int[] dest, int start, int components,
+      int[] offsets, double[] weights, int maxColor) {
+    int lanes = DOUBLES.length();
+    double[] sums = new double[lanes];
+    int done = 0;
+    for (; done + lanes <= components; done += lanes) {
+      int k = start + done;
+      DoubleVector sum = DoubleVector.zero(DOUBLES);
+      for (int t = 0; t < offsets.length; t++) {
+        sum = sum.add(((DoubleVector) IntVector.fromArray(INTS, src, k + offsets[t])
+            .convertShape(VectorOperators.I2D, DOUBLES, 0)).mul(weights[t]));
+      }
+      // Kernel.clamp: only sums strictly between 0 and maxColor are rounded
+      DoubleVector nearest = sum.add(ROUNDING).sub(ROUNDING);
+      DoubleVector floor = nearest.blend(nearest.sub(1.0),
+          nearest.compare(VectorOperators.GT, sum));
+      floor.blend(floor.add(1.0), sum.sub(floor).compare(VectorOperators.GE, 0.5))
+          .blend(0.0, sum.compare(VectorOperators.LE, 0.0))
+          .blend(maxColor, sum.compare(VectorOperators.GE, maxColor))
+          .intoArray(sums, 0);
+      for (int lane = 0; lane < lanes; lane++) {
+        // a sum that is not a number becomes 0 like in Kernel.clamp
+        dest[k + lane] = (int) sums[lane];
+      }
+    }
+    return done;
+  }
+
+  @Override
+  int transformColors(double[][] matrices, int[] src, int[] dest, int start, int pixels,
+      int maxColor) {
+    int lanes = DOUBLES.length();
+    // every partial sum of a row fits in an int as long as no component is this big
+    double[] limits = new double[matrices.length];
+    for (int m = 0; m < matrices.length; m++) {
+      double largest = 0;
+      for (int row = 0; row < 3; row++) {
+        largest = Math.max(largest, Math.abs(matrices[m][row * 3])
+            + Math.abs(matrices[m][row * 3 + 1]) + Math.abs(matrices[m][row * 3 + 2]));
+      }
+      limits[m] = largest < Double.POSITIVE_INFINITY ? INT_LIMIT / Math.max(1, largest) : 0;
+    }
+    double[] reds = new double[lanes];
+    double[] greens = new double[lanes];
+    double[] blues = new double[lanes];
+    int done = 0;
+    for (; done + lanes <= pixels; done += lanes) {
+      int i = start + done * 3;
+      DoubleVector red = (DoubleVector) IntVector.fromArray(INTS, src, i, CHANNEL, 0)
+          .convertShape(VectorOperators.I2D, DOUBLES, 0);
+      DoubleVector green = (DoubleVector) IntVector.fromArray(INTS, src, i + 1, CHANNEL, 0)
+          .convertShape(VectorOperators.I2D, DOUBLES, 0);
+      DoubleVector blue = (DoubleVector) IntVector.fromArray(INTS, src, i + 2, CHANNEL, 0)
+          .convertShape(VectorOperators.I2D, DOUBLES, 0);
+      for (int m = 0; m < matrices.length; m++) {
+        if (!red.abs().max(green.abs()).max(blue.abs())
+            .compare(VectorOperators.LT, limits[m]).allTrue()) {
+          // the caller transforms the rest
+          return done;
+        }
+        double[] matrix = matrices[m];
+        // every row truncates after every term like ColorMatrix.transform
+        DoubleVector newRed = DoubleVector.zero(DOUBLES);
+        DoubleVector newGreen = DoubleVector.zero(DOUBLES);
+        DoubleVector newBlue = DoubleVector.zero(DOUBLES);
+        for (int row = 0; row < 3; row++) {
+          DoubleVector color = DoubleVector.zero(DOUBLES);
+          for (int column = 0; column < 3; column++) {
+            DoubleVector component = column == 0 ? red : column == 1 ? green : blue;
+            DoubleVector sum = color.add(component.mul(matrix[row * 3 + column]));
+            // truncate toward zero: the floor of the magnitude, with the sign put back
+            DoubleVector magnitude = sum.abs();
+            DoubleVector nearest = magnitude.add(ROUNDING).sub(ROUNDING);
+            nearest = nearest.blend(nearest.sub(1.0),
+                nearest.compare(VectorOperators.GT, magnitude));
+            color = nearest.blend(nearest.neg(), sum.compare(VectorOperators.LT, 0.0));
+          }
+          color = color.blend(0.0, color.compare(VectorOperators.LT, 0.0))
+              .blend(maxColor, color.compare(VectorOperators.GT, maxColor));
+          if (row == 0) {
+            newRed = color;
+          } else if (row == 1) {
+            newGreen = color;
+          } else {
+            newBlue = color;
+          }
+        }
+        red = newRed;
+        green = newGreen;
+        blue = newBlue;
+      }
+      red.intoArray(reds, 0);
+      green.intoArray(greens, 0);
+      blue.intoArray(blues, 0);
+      for (int lane = 0; lane < lanes; lane++) {
+        dest[i + lane * 3] = (int) reds[lane];
+        dest[i + lane * 3 + 1] = (int) greens[lane];
+        dest[i + lane * 3 + 2] = (int) blues[lane];
+      }
+    }
+    return done;
+  }
+}